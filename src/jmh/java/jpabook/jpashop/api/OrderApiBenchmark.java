@@ -0,0 +1,167 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.benchmark.BenchmarkContext;
+import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.repository.order.query.OrderFlatDto;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import jpabook.jpashop.seed.DataSeeder;
+import jpabook.jpashop.seed.SeedProperties;
+import org.openjdk.jmh.annotations.*;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * 주문 조회 전략(V1 ~ V6) 벤치마크
+ *
+ * - 처리량(Throughput)과 지연 백분위(SampleTime)를 같이 측정한다.
+ * - 할당률은 jmh 태스크에 기본으로 들어가는 -prof gc 로 나온다.
+ * - SQL 실행 수는 SqlCounter(AuxCounters)로 나온다. sqlStatements / calls = 호출 1번당 SQL 수
+ *
+ * 실행 : ./gradlew jmh -Pjmh.args="OrderApiBenchmark -p orderCount=1000"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@Threads(1)
+public class OrderApiBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    int orderCount;
+
+    @Param({"100"})
+    int limit;
+
+    BenchmarkContext context;
+    OrderApiController orderApiController;
+    OrderRepository orderRepository;
+    OrderQueryRepository orderQueryRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        new DataSeeder(context.getBean(DataSource.class)).seed(SeedProperties.forOrders(orderCount));
+
+        orderApiController = context.getBean(OrderApiController.class);
+        orderRepository = context.getBean(OrderRepository.class);
+        orderQueryRepository = context.getBean(OrderQueryRepository.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * 벤치마크 메소드마다 실행된 SQL 수
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class SqlCounter {
+        public long sqlStatements;
+        public long calls;
+    }
+
+    @Benchmark
+    public List<?> v1_entity(SqlCounter counter) {
+        return measure(counter, () -> orderApiController.orderV1());
+    }
+
+    @Benchmark
+    public List<?> v2_entityToDto(SqlCounter counter) {
+        return measure(counter, () -> orderApiController.orderV2());
+    }
+
+    @Benchmark
+    public List<?> v3_fetchJoin(SqlCounter counter) {
+        return measure(counter, () -> orderApiController.orderV3());
+    }
+
+    @Benchmark
+    public List<?> v3_1_batchFetch_firstPage(SqlCounter counter) {
+        return measure(counter, () -> page(0));
+    }
+
+    @Benchmark
+    public List<?> v3_1_batchFetch_lastPage(SqlCounter counter) {
+        return measure(counter, () -> page(Math.max(0, orderCount - limit)));
+    }
+
+    @Benchmark
+    public List<?> v3_1_keyset_firstPage(SqlCounter counter) {
+        return measure(counter, () -> keysetPage(null));
+    }
+
+    @Benchmark
+    public List<?> v3_1_keyset_lastPage(SqlCounter counter) {
+        return measure(counter, () -> keysetPage(DataSeeder.ID_BASE + orderCount - limit - 1));
+    }
+
+    @Benchmark
+    public List<OrderQueryDto> v5_dtoIn_keyset_lastPage(SqlCounter counter) {
+        return measure(counter, () -> orderQueryRepository.findAllByDto_optimization(DataSeeder.ID_BASE + orderCount - limit - 1, limit));
+    }
+
+    @Benchmark
+    public List<OrderQueryDto> v5_dtoIn_keyset_firstPage(SqlCounter counter) {
+        return measure(counter, () -> orderQueryRepository.findAllByDto_optimization(null, limit));
+    }
+
+    @Benchmark
+    public List<OrderQueryDto> v6_flat_keyset_firstPage(SqlCounter counter) {
+        return measure(counter, () -> orderQueryRepository.findAllByDto_flat(null, limit));
+    }
+
+    @Benchmark
+    public List<OrderQueryDto> v6_flat_keyset_lastPage(SqlCounter counter) {
+        return measure(counter, () -> orderQueryRepository.findAllByDto_flat(DataSeeder.ID_BASE + orderCount - limit - 1, limit));
+    }
+
+    @Benchmark
+    public List<OrderQueryDto> v4_dto(SqlCounter counter) {
+        return measure(counter, () -> orderQueryRepository.findOrderQueryDtos());
+    }
+
+    @Benchmark
+    public List<OrderQueryDto> v5_dtoIn(SqlCounter counter) {
+        return measure(counter, () -> orderQueryRepository.findAllByDto_optimization());
+    }
+
+    //결과 캐시(쓰기가 없으므로 첫 호출 이후 쿼리 0번)
+    @Benchmark
+    public List<OrderQueryDto> v5_dtoIn_resultCache(SqlCounter counter) {
+        return measure(counter, () -> orderApiController.ordersV5());
+    }
+
+    @Benchmark
+    public List<OrderFlatDto> v6_flat(SqlCounter counter) {
+        return measure(counter, () -> orderQueryRepository.findAllByDto_flat());
+    }
+
+    private List<OrderApiController.OrderDto> page(int offset) {
+        return orderRepository.findAllWithMemberDelivery(offset, limit).stream()
+                .map(o -> new OrderApiController.OrderDto(o))
+                .collect(Collectors.toList());
+    }
+
+    private List<OrderApiController.OrderDto> keysetPage(Long afterOrderId) {
+        return orderRepository.findAllWithMemberDeliveryAfter(afterOrderId, limit).stream()
+                .map(o -> new OrderApiController.OrderDto(o))
+                .collect(Collectors.toList());
+    }
+
+    private <T> T measure(SqlCounter counter, Supplier<T> call) {
+        long before = context.statementCount();
+        T result = context.readOnly(call);
+        counter.sqlStatements += context.statementCount() - before;
+        counter.calls++;
+        return result;
+    }
+}
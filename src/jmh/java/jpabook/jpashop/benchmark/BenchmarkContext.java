@@ -0,0 +1,65 @@
+package jpabook.jpashop.benchmark;
+
+import jpabook.jpashop.JpashopApplication;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.function.Supplier;
+
+/**
+ * 벤치마크용 스프링 컨텍스트
+ *
+ * - 웹 서버 없이(WebApplicationType.NONE) 애플리케이션을 띄우고, bench 프로파일(H2 메모리 DB)을 사용한다.
+ * - 컨트롤러/레포지토리 호출은 readOnly 트랜잭션 안에서 실행한다.(지연 로딩이 동작하도록, 호출마다 새 영속성 컨텍스트)
+ * - SQL 실행 수는 hibernate Statistics의 prepareStatementCount 로 센다.
+ */
+public class BenchmarkContext implements AutoCloseable {
+
+    private final ConfigurableApplicationContext context;
+    private final TransactionTemplate readOnlyTx;
+    private final Statistics statistics;
+
+    private BenchmarkContext(ConfigurableApplicationContext context) {
+        this.context = context;
+        this.readOnlyTx = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        this.readOnlyTx.setReadOnly(true);
+        this.statistics = context.getBean(EntityManagerFactory.class)
+                .unwrap(SessionFactory.class)
+                .getStatistics();
+    }
+
+    public static BenchmarkContext start(String... properties) {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(JpashopApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("bench")
+                .properties(properties)
+                .run();
+        return new BenchmarkContext(context);
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public <T> T readOnly(Supplier<T> call) {
+        return readOnlyTx.execute(status -> call.get());
+    }
+
+    /**
+     * 지금까지 실행된 SQL(PreparedStatement) 수
+     */
+    public long statementCount() {
+        return statistics.getPrepareStatementCount();
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+}
@@ -0,0 +1,217 @@
+package jpabook.jpashop.server;
+
+import jpabook.jpashop.JpashopApplication;
+import jpabook.jpashop.seed.DataSeeder;
+import jpabook.jpashop.seed.SeedProperties;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 플랫폼 스레드 vs 가상 스레드 요청 처리 부하 비교 (JDK 21 이상에서 실행)
+ *
+ * - 모드마다 앱을 임의 포트로 띄우고(bench 프로파일), 동시 클라이언트 clients 개가 duration 동안 /api/v3.1/orders 를 계속 호출한다.
+ * - 느린 DB 는 커넥션을 얻은 뒤 db-latency 만큼 잡고 있는 것으로 흉내낸다.(커넥션을 쥔 채로 기다림 = 느린 쿼리)
+ * - 동시 처리 수는 플랫폼 모드는 min(tomcat-threads, pool-size), 가상 스레드 모드는 pool-size 로 제한된다.
+ *   pool-size 를 tomcat-threads 보다 크게 줘야 차이가 보인다.
+ * - 결과 : 처리량(req/s), p50/p99 응답 시간, 실패 수
+ *
+ * 실행 : ./gradlew loadCompare -Pload.args="clients=1000 db-latency=50 pool-size=400 tomcat-threads=200"
+ */
+public class VirtualThreadLoadComparison {
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        if (!VirtualThreads.isSupported()) {
+            System.out.println("가상 스레드를 지원하지 않는 JDK 입니다. 플랫폼 스레드 결과만 측정합니다. : " + System.getProperty("java.version"));
+        }
+
+        List<Result> results = new ArrayList<>();
+        results.add(run(false, options));
+        if (VirtualThreads.isSupported()) {
+            results.add(run(true, options));
+        }
+
+        System.out.printf("%n%-10s %10s %10s %10s %8s%n", "mode", "req/s", "p50(ms)", "p99(ms)", "errors");
+        for (Result result : results) {
+            System.out.printf("%-10s %10.1f %10.1f %10.1f %8d%n",
+                    result.mode, result.throughput, result.p50Millis, result.p99Millis, result.errors);
+        }
+    }
+
+    private static Result run(boolean virtualThreads, Options options) throws Exception {
+        String mode = virtualThreads ? "virtual" : "platform";
+        try (ConfigurableApplicationContext context = start(virtualThreads, options)) {
+            new DataSeeder(context.getBean(DataSource.class)).seed(SeedProperties.forOrders(options.orderCount));
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            URI uri = URI.create("http://localhost:" + port + "/api/v3.1/orders?offset=0&limit=" + options.limit);
+
+            // 클라이언트 쪽이 병목이 되지 않도록 요청 스레드는 클라이언트 수만큼 (HttpClient 내부 executor 와는 따로)
+            ExecutorService clients = Executors.newFixedThreadPool(options.clients);
+            HttpClient http = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+            try {
+                load(http, uri, clients, Duration.ofSeconds(5), options.clients); // 워밍업
+                Result result = load(http, uri, clients, options.duration, options.clients);
+                result.mode = mode;
+                return result;
+            } finally {
+                clients.shutdownNow();
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext start(boolean virtualThreads, Options options) {
+        return new SpringApplicationBuilder(JpashopApplication.class)
+                .profiles("bench")
+                .properties(
+                        "server.port=0",
+                        "server.tomcat.threads.max=" + options.tomcatThreads,
+                        "server.tomcat.accept-count=" + options.clients,
+                        "server.tomcat.max-connections=" + options.clients * 2,
+                        "spring.datasource.hikari.maximum-pool-size=" + options.poolSize,
+                        "spring.datasource.hikari.connection-timeout=30000",
+                        "jpashop.server.virtual-threads=" + virtualThreads)
+                .initializers(context -> context.getBeanFactory().addBeanPostProcessor(slowDataSource(options.dbLatency)))
+                .run();
+    }
+
+    /**
+     * 커넥션을 얻은 뒤 latency 만큼 쉰다.
+     */
+    private static BeanPostProcessor slowDataSource(Duration latency) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource) || bean instanceof DelegatingDataSource) {
+                    return bean;
+                }
+                return new DelegatingDataSource((DataSource) bean) {
+                    @Override
+                    public Connection getConnection() throws SQLException {
+                        Connection connection = super.getConnection();
+                        try {
+                            Thread.sleep(latency.toMillis());
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return connection;
+                    }
+                };
+            }
+        };
+    }
+
+    private static Result load(HttpClient http, URI uri, ExecutorService clients,
+                               Duration duration, int clientCount) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(60)).GET().build();
+        long deadline = System.nanoTime() + duration.toNanos();
+        AtomicInteger errors = new AtomicInteger();
+
+        List<Future<long[]>> futures = new ArrayList<>(clientCount);
+        for (int i = 0; i < clientCount; i++) {
+            futures.add(clients.submit(() -> {
+                long[] latencies = new long[1024];
+                int count = 0;
+                while (System.nanoTime() < deadline) {
+                    long start = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() != 200) {
+                            errors.incrementAndGet();
+                            continue;
+                        }
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                        continue;
+                    }
+                    if (count == latencies.length) {
+                        latencies = Arrays.copyOf(latencies, count * 2);
+                    }
+                    latencies[count++] = System.nanoTime() - start;
+                }
+                return Arrays.copyOf(latencies, count);
+            }));
+        }
+
+        long[] all = new long[0];
+        for (Future<long[]> future : futures) {
+            long[] latencies = future.get(duration.getSeconds() + 120, TimeUnit.SECONDS);
+            int offset = all.length;
+            all = Arrays.copyOf(all, offset + latencies.length);
+            System.arraycopy(latencies, 0, all, offset, latencies.length);
+        }
+        Arrays.sort(all);
+
+        Result result = new Result();
+        result.throughput = all.length / (double) duration.getSeconds();
+        result.p50Millis = percentile(all, 0.50) / 1_000_000.0;
+        result.p99Millis = percentile(all, 0.99) / 1_000_000.0;
+        result.errors = errors.get();
+        return result;
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+    }
+
+    private static final class Result {
+        String mode;
+        double throughput;
+        double p50Millis;
+        double p99Millis;
+        int errors;
+    }
+
+    private static final class Options {
+        int clients = 1000;
+        Duration dbLatency = Duration.ofMillis(50);
+        int poolSize = 400;
+        int tomcatThreads = 200;
+        Duration duration = Duration.ofSeconds(30);
+        int orderCount = 1000;
+        int limit = 100;
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (String arg : args) {
+                String[] kv = arg.split("=", 2);
+                switch (kv[0]) {
+                    case "clients": options.clients = Integer.parseInt(kv[1]); break;
+                    case "db-latency": options.dbLatency = Duration.ofMillis(Long.parseLong(kv[1])); break;
+                    case "pool-size": options.poolSize = Integer.parseInt(kv[1]); break;
+                    case "tomcat-threads": options.tomcatThreads = Integer.parseInt(kv[1]); break;
+                    case "duration": options.duration = Duration.ofSeconds(Long.parseLong(kv[1])); break;
+                    case "order-count": options.orderCount = Integer.parseInt(kv[1]); break;
+                    case "limit": options.limit = Integer.parseInt(kv[1]); break;
+                    default: throw new IllegalArgumentException("알 수 없는 옵션 : " + arg);
+                }
+            }
+            return options;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.benchmark.BenchmarkContext;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.seed.DataSeeder;
+import jpabook.jpashop.seed.SeedProperties;
+import org.openjdk.jmh.annotations.*;
+
+import javax.sql.DataSource;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 기존 회원이 많을 때 회원 가입 처리량
+ *
+ * - nameFilter=true  : Bloom filter 로 처음 보는 이름은 중복 확인 쿼리 없이 insert
+ * - nameFilter=false : 매번 이름 인덱스로 존재 여부 확인 후 insert
+ * - newMember : 새 이름 가입, duplicate : 이미 있는 이름으로 가입(예외)
+ *   ./gradlew jmh -Pjmh.args="MemberJoinBenchmark -t 8"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class MemberJoinBenchmark {
+
+    @Param({"1000000"})
+    int memberCount;
+
+    @Param({"true", "false"})
+    boolean nameFilter;
+
+    BenchmarkContext context;
+    MemberService memberService;
+    final AtomicLong sequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("jpashop.member.name-filter.enabled=" + nameFilter,
+                "jpashop.member.name-filter.expected-members=" + memberCount * 2);
+        new DataSeeder(context.getBean(DataSource.class)).seed(SeedProperties.forMembers(memberCount));
+        context.getBean(MemberNameFilter.class).rebuild(); //jdbc 로 넣은 회원 반영
+        memberService = context.getBean(MemberService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Long newMember() {
+        return memberService.join(member("newMember" + sequence.getAndIncrement()));
+    }
+
+    @Benchmark
+    public boolean duplicate() {
+        try {
+            memberService.join(member("member" + ThreadLocalRandom.current().nextInt(memberCount)));
+            return false;
+        } catch (IllegalStateException e) {
+            return true;
+        }
+    }
+
+    private static Member member(String name) {
+        Member member = new Member();
+        member.setName(name);
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        return member;
+    }
+}
@@ -0,0 +1,71 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.benchmark.BenchmarkContext;
+import jpabook.jpashop.domain.PooledSequenceGenerator;
+import jpabook.jpashop.seed.DataSeeder;
+import jpabook.jpashop.seed.SeedProperties;
+import org.openjdk.jmh.annotations.*;
+
+import javax.sql.DataSource;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OrderService.order 처리량 벤치마크
+ *
+ * - ids=shared      : 기존 매핑 - 모든 엔티티가 hibernate_sequence 하나를 persist 마다 조회(before)
+ * - ids=per-entity-1 : 엔티티별 시퀀스, persist 마다 조회(시퀀스 경합만 나눈 효과)
+ * - ids=per-entity-50: 엔티티별 시퀀스 + pooled-lo, 시퀀스 1번 조회로 id 50개(after)
+ * - 스레드 수는 -t 로 바꿔가며 실행한다.(1, 4, 16, 64)
+ *   ./gradlew jmh -Pjmh.args="OrderServiceBenchmark.order -t 64"
+ * - 상품은 시드 상품 중 무작위로 골라서 재고 row 경합은 최소로 둔다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class OrderServiceBenchmark {
+
+    private static final SeedProperties SEED = SeedProperties.forOrders(1000);
+
+    @Param({"shared", "per-entity-1", "per-entity-50"})
+    String ids;
+
+    BenchmarkContext context;
+    OrderService orderService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start(idProperties());
+        new DataSeeder(context.getBean(DataSource.class)).seed(SEED);
+        orderService = context.getBean(OrderService.class);
+    }
+
+    private String[] idProperties() {
+        switch (ids) {
+            case "shared":
+                return new String[]{"spring.jpa.properties." + PooledSequenceGenerator.SHARED_SEQUENCE_SETTING + "=true"};
+            case "per-entity-1":
+                return new String[]{"spring.jpa.properties." + PooledSequenceGenerator.ALLOCATION_SIZE_SETTING + "=1"};
+            case "per-entity-50":
+                return new String[]{"spring.jpa.properties." + PooledSequenceGenerator.ALLOCATION_SIZE_SETTING + "=50"};
+            default:
+                throw new IllegalArgumentException("ids : " + ids);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Long order() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long memberId = DataSeeder.ID_BASE + random.nextInt(SEED.getMembers());
+        long itemId = DataSeeder.ID_BASE + random.nextInt(SEED.getItems());
+        return orderService.order(memberId, itemId, 1);
+    }
+}
@@ -0,0 +1,63 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.benchmark.BenchmarkContext;
+import jpabook.jpashop.exception.NotEnoughStockException;
+import jpabook.jpashop.seed.DataSeeder;
+import jpabook.jpashop.seed.SeedProperties;
+import org.openjdk.jmh.annotations.*;
+
+import javax.sql.DataSource;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 주문이 한 상품(hot item)에 몰릴 때 재고 샤드 수에 따른 처리량
+ *
+ * - shardCount=0 : 상품 row 하나에 조건부 update (모든 주문이 같은 row 락)
+ * - shardCount=N : 재고 row N개에 나눠서 update
+ * - 스레드 수를 늘려가며 실행한다.
+ *   ./gradlew jmh -Pjmh.args="StockShardBenchmark -t 32"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class StockShardBenchmark {
+
+    private static final int SEED_ORDERS = 1000;
+    private static final int MEMBER_COUNT = SEED_ORDERS / 10;
+    private static final long HOT_ITEM_ID = DataSeeder.ID_BASE;
+
+    @Param({"0", "1", "4", "16", "64"})
+    int shardCount;
+
+    BenchmarkContext context;
+    OrderService orderService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start();
+        new DataSeeder(context.getBean(DataSource.class)).seed(SeedProperties.forOrders(SEED_ORDERS));
+        if (shardCount > 0) {
+            context.getBean(ItemService.class).shardStock(HOT_ITEM_ID, shardCount);
+        }
+        orderService = context.getBean(OrderService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Long orderHotItem() {
+        long memberId = DataSeeder.ID_BASE + ThreadLocalRandom.current().nextInt(MEMBER_COUNT);
+        try {
+            return orderService.order(memberId, HOT_ITEM_ID, 1);
+        } catch (NotEnoughStockException e) {
+            throw new IllegalStateException("재고가 바닥났습니다. 시드 재고를 늘려주세요.", e);
+        }
+    }
+}
@@ -54,6 +54,7 @@ public class InitDb {
             Delivery delivery = createDelivery(member);
             Order order = Order.createOrder(member, delivery, orderItem1, orderItem2);
             em.persist(order);
+            em.persist(OrderSummary.from(order));
         }
 
         public void dbInit2() {
@@ -72,6 +73,7 @@ public class InitDb {
             Delivery delivery = createDelivery(member);
             Order order = Order.createOrder(member, delivery, orderItem1, orderItem2);
             em.persist(order);
+            em.persist(OrderSummary.from(order));
         }
 
         private Member createMember(String name, String city, String street, String zipcode) {
@@ -3,9 +3,11 @@ package jpabook.jpashop;
 import com.fasterxml.jackson.datatype.hibernate5.Hibernate5Module;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
 import org.springframework.context.annotation.Bean;
 
-@SpringBootApplication
+//R2DBC 는 조회 API 에서만 직접 만들어 쓴다.(ReactiveDatabase) - 자동 설정되면 JDBC DataSource 자동 설정이 꺼진다.
+@SpringBootApplication(exclude = R2dbcAutoConfiguration.class)
 public class JpashopApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,28 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.service.DashboardService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequiredArgsConstructor
+public class DashboardApiController {
+
+    private final DashboardService dashboardService;
+
+    /**
+     * 관리자 홈 : 회원 목록, 주문 목록(V5), 상품 목록을 동시에 조회
+     *
+     * 개선 : /api/v2/members, /api/v5/orders, 상품 목록을 차례로 부르면 응답 시간은 셋의 합이다. -> 셋 중 가장 느린 것
+     *
+     * 응답 : section 마다 status(OK, TIMEOUT, FAILED, REJECTED), 걸린 시간, data
+     *       deadline(jpashop.dashboard.deadline) 안에 못 끝난 section 은 data 없이 TIMEOUT
+     * */
+    @GetMapping("/api/dashboard")
+    public Map<String, DashboardService.Section> dashboard() {
+        return dashboardService.load();
+    }
+}
@@ -0,0 +1,49 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.fetchplan.FetchPlan;
+import jpabook.jpashop.service.ItemService;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.*;
+
+import javax.validation.Valid;
+import javax.validation.constraints.Min;
+
+@RestController
+@RequiredArgsConstructor
+public class ItemApiController {
+
+    private final ItemService itemService;
+
+    /**
+     * 상품 재고 샤딩 (플래시 세일 등 주문이 몰리는 상품)
+     *
+     * 재고를 shardCount 개의 row로 나눠서 주문마다 다른 row 락을 잡게 한다.
+     * shardCount 1 이상, 다시 호출하면 현재 재고를 새 샤드 수로 다시 나눈다.
+     * */
+    @FetchPlan(Item.WITH_STOCK_SHARDS) // 응답의 재고수량 = 샤드 합
+    @PostMapping("/api/items/{id}/stock-shards")
+    public StockShardResponse shardStock(@PathVariable("id") Long id,
+                                         @RequestBody @Valid StockShardRequest request) {
+        itemService.shardStock(id, request.getShardCount());
+
+        Item item = itemService.findOne(id);
+        return new StockShardResponse(item.getId(), item.getStockShardCount(), item.getStockQuantity());
+    }
+
+    @Data
+    static class StockShardRequest {
+        @Min(1)
+        private int shardCount;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class StockShardResponse {
+        private Long id;
+        private int shardCount;
+        private int stockQuantity;
+    }
+}
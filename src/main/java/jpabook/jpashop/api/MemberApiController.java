@@ -1,6 +1,8 @@
 package jpabook.jpashop.api;
 
+import jpabook.jpashop.cache.QueryResultCache;
 import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.monitor.QueryBudget;
 import jpabook.jpashop.service.MemberService;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -18,6 +20,7 @@ import java.util.stream.Collectors;
 public class MemberApiController {
 
     private final MemberService memberService;
+    private final QueryResultCache queryResultCache;
 
 
     /**
@@ -43,16 +46,21 @@ public class MemberApiController {
      * 개선점 :  응답으로 노출하고 싶은 거만 나갈 수 있다.(유지보수성이 좋다.)
      *         제너릭 필드를 가지고 있는 엔티티로 한번 더 감싸면서, 추가적으로 생기는 요구 필드(count 등등)에 대해 유연할 수 있다.
      *
+     * 결과 캐시 : 회원 가입/수정이 커밋되기 전까지는 캐시된 결과를 그대로 준다.(쿼리 0번)
+     *
      * */
+    @QueryBudget(1)
     @GetMapping("/api/v2/members")
     public Result membersV2() {
-        List<Member> findMembers = memberService.findMembers();
+        return queryResultCache.get("members.v2", Collections.emptyList(), () -> {
+            List<Member> findMembers = memberService.findMembers();
 
-        List<MemberDto> collect = findMembers.stream()
-                                                .map(m -> new MemberDto(m.getName()))
-                                                .collect(Collectors.toList());
+            List<MemberDto> collect = findMembers.stream()
+                                                    .map(m -> new MemberDto(m.getName()))
+                                                    .collect(Collectors.toList());
 
-        return new Result(collect);
+            return new Result(collect);
+        }, QueryResultCache.Region.MEMBER);
     }
 
     @Data
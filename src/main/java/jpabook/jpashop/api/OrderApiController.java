@@ -1,21 +1,40 @@
 package jpabook.jpashop.api;
 
+import jpabook.jpashop.cache.QueryResultCache;
 import jpabook.jpashop.domain.Address;
 import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.OrderItem;
 import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.fetchplan.FetchPlan;
+import jpabook.jpashop.monitor.QueryBudget;
 import jpabook.jpashop.repository.OrderRepository;
 import jpabook.jpashop.repository.OrderSearch;
 import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryPage;
 import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import jpabook.jpashop.repository.order.summary.OrderSummaryDto;
+import jpabook.jpashop.repository.order.summary.OrderSummaryRepository;
+import jpabook.jpashop.service.OrderCommand;
+import jpabook.jpashop.service.OrderExportService;
+import jpabook.jpashop.service.OrderService;
+import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
-import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.RequestParam;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.validation.Valid;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @RestController
@@ -24,6 +43,12 @@ public class OrderApiController {
 
     private final OrderRepository orderRepository;
     private final OrderQueryRepository orderQueryRepository;
+    private final OrderSummaryRepository orderSummaryRepository;
+    private final OrderExportService orderExportService;
+    private final OrderService orderService;
+    private final QueryResultCache queryResultCache;
+
+    private static final int MAX_PAGE_SIZE = 1000; // default_batch_fetch_size 이하
 
     /**
      * V1    : 주문리스트를 조회하는 API
@@ -34,7 +59,9 @@ public class OrderApiController {
      *  SOL 1: 노출 안하려고 하는 필드를 JsonIgnore 에너테이션 처리 - 이 필드를 다른 곳에서 쓴다면? 답이 없다.
      *
      *
+     *  OSIV off : 트랜잭션 밖에서 강제 초기화할 수 없으므로 fetch plan 으로 주문상품, 상품까지 조회한다.
      * */
+    @FetchPlan(Order.WITH_ITEMS)
     @GetMapping("api/v1/orders")
     public List<Order> orderV1() {
         List<Order> all = orderRepository.findAllByString((new OrderSearch()));
@@ -61,7 +88,10 @@ public class OrderApiController {
      * 문제점 : 1. List<OrderItem> 데이터가 외부에 다 노출됨.. 클라이언트에 줄 데이터만 표시하도록 dto를 또 만들어야한다.(출력 해줄거만 해주면 되는데 터치안된 null값들까지 다 나옴)
      *            sol1 -> List로 나가는 OrderItem 조차도 dto로 만들어줘야한다.
      *         2. 각 객체로 접근하는 sql이 어마어마하게 많이 나온다.(List가 collection이니까 더 나오겠지..)
+     *
+     * OSIV off : DTO 변환은 트랜잭션 밖이므로 fetch plan 으로 조회한다.(회원,배송 조인 + 주문상품 in + 상품 in)
      * */
+    @FetchPlan(Order.WITH_ITEMS)
     @GetMapping("api/v2/orders")
     public List<OrderDto> orderV2() {
         List<Order> orders = orderRepository.findAllByString((new OrderSearch()));
@@ -86,6 +116,8 @@ public class OrderApiController {
      *   한계  : 1:N FETCH JOIN은 하나 이상 사용하면 안된다. 데이터의 부정합이 올 수 있다.
      *
      * */
+    @FetchPlan(Order.WITH_ITEMS) // 이미 fetch join 으로 모두 가져온다.(plan 은 선언/확인용)
+    @QueryBudget(1)
     @GetMapping("api/v3/orders")
     public List<OrderDto> orderV3() {
         List<Order> orders = orderRepository.findAllWithItem();
@@ -108,18 +140,47 @@ public class OrderApiController {
      * 알아둘 것 : default_batch_fetch_size는 100-1000개 사이로 적절하게 설정한다.
      *
      * */
+    @FetchPlan(Order.WITH_ITEMS) // OSIV off : 컬렉션 batch fetch 도 레포지토리 트랜잭션 안에서
+    @QueryBudget(3) // 주문(+회원,배송) 1번, orderItems in 1번, item in 1번
     @GetMapping("api/v3.1/orders")
     public List<OrderDto> orderV3_page(
             @RequestParam(value = "offset", defaultValue = "0") int offset,
             @RequestParam(value = "limit", defaultValue = "100") int limit)
     {
-        List<Order> orders = orderRepository.findAllWithMemberDelivery(); //ToOne 관계가 걸린거만 패치조인으로 가지고오는 method
+        List<Order> orders = orderRepository.findAllWithMemberDelivery(offset, limit); //ToOne 관계가 걸린거만 패치조인으로 가지고오는 method
 
         return orders.stream()
                 .map(o -> new OrderDto(o))
                 .collect(Collectors.toList());
     }
 
+    /**
+     *
+     * V3.1 키셋 페이징 : offset 대신 커서(마지막으로 받은 주문 id) 다음부터 조회
+     *
+     * 개선점 : offset은 앞 페이지 row를 모두 읽고 버리므로 뒤 페이지로 갈수록 느려진다.
+     *         pk 인덱스로 커서 위치를 바로 찾으므로 몇 번째 페이지든 첫 페이지와 비용이 같다.
+     *         응답의 nextCursor를 다음 요청의 cursor로 넘긴다.(마지막 페이지면 null)
+     *
+     * */
+    @FetchPlan(Order.WITH_ITEMS)
+    @QueryBudget(3)
+    @GetMapping("api/v3.1/orders/cursor")
+    public CursorResult<List<OrderDto>> orderV3_cursor(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "100") int limit)
+    {
+        int size = pageSize(limit);
+        List<Order> orders = orderRepository.findAllWithMemberDeliveryAfter(decodeCursor(cursor), size + 1);
+
+        List<OrderDto> result = orders.stream()
+                .limit(size)
+                .map(o -> new OrderDto(o))
+                .collect(Collectors.toList());
+
+        return new CursorResult<>(result, nextCursor(orders.size() > size, result, OrderDto::getOrderId));
+    }
+
     /**
      * JPA에서 DTO 직접 조회
      *
@@ -138,11 +199,188 @@ public class OrderApiController {
      *
      * 개선 : ordersV4에서 발생한 N+1 문제 해결
      *
+     * 결과 캐시 : 주문/회원/상품 쓰기가 커밋되기 전까지는 캐시된 결과를 그대로 준다.(쿼리 0번)
      *
      * */
+    @QueryBudget(2)
     @GetMapping("/api/v5/orders")
     public List<OrderQueryDto> ordersV5() { //원래 엔티티의 레이아웃이 아니라 엔티티 값들을 입맛대로 DTO 형태로 만듦
-        return orderQueryRepository.findAllByDto_optimization();
+        return queryResultCache.get("orders.v5", Collections.emptyList(),
+                orderQueryRepository::findAllByDto_optimization,
+                QueryResultCache.Region.ORDER, QueryResultCache.Region.MEMBER, QueryResultCache.Region.ITEM);
+    }
+
+    /**
+     * JPA에서 DTO 직접 조회 - 플랫 데이터 최적화
+     *
+     * 방식 : 주문, 회원, 배송, 주문상품, 상품을 조인한 결과(row)를 그대로 한번에 조회하고, 애플리케이션에서 주문 단위로 묶는다.
+     *
+     * 개선 : 조인 쿼리 1번 (+ 페이지 범위를 정하는 주문 id 조회 1번)
+     *
+     * 단점 : 조인으로 주문 데이터가 주문상품 수만큼 중복되어 전송된다.(데이터가 많으면 V5보다 느릴 수 있다.)
+     *       row 기준 페이징이 안되므로, limit 번째 주문 id 를 먼저 찾아서 주문 id 범위로 자른다.
+     * */
+    @QueryBudget(2)
+    @GetMapping("/api/v6/orders")
+    public CursorResult<List<OrderQueryDto>> ordersV6(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        int size = pageSize(limit);
+        List<OrderQueryDto> orders = orderQueryRepository.findAllByDto_flat(decodeCursor(cursor), size + 1);
+        return toCursorResult(orders, size);
+    }
+
+    /**
+     * V4 키셋 페이징 (컬렉션은 여전히 주문마다 조회하므로 페이지 크기만큼 n+1)
+     */
+    @GetMapping("/api/v4/orders/cursor")
+    public CursorResult<List<OrderQueryDto>> ordersV4_cursor(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        int size = pageSize(limit);
+        List<OrderQueryDto> orders = orderQueryRepository.findOrderQueryDtos(decodeCursor(cursor), size + 1);
+        return toCursorResult(orders, size);
+    }
+
+    /**
+     * V5 키셋 페이징 (루트 1번, 해당 페이지의 컬렉션 in 1번)
+     */
+    @QueryBudget(2)
+    @GetMapping("/api/v5/orders/cursor")
+    public CursorResult<List<OrderQueryDto>> ordersV5_cursor(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        OrderQueryPage page = orderQueryRepository.findPageByDto_optimization(decodeCursor(cursor), pageSize(limit));
+        return new CursorResult<>(page.getOrders(), nextCursor(page.isHasNext(), page.getOrders(), OrderQueryDto::getOrderId));
+    }
+
+    /**
+     * 주문 요약(order_summary) 조회 - 키셋 페이징
+     *
+     * 개선점 : 주문, 회원, 배송, 주문상품, 상품 조인 없이 주문 1건 = row 1개인 테이블 하나만 읽는다.(쿼리 1번, row 뻥튀기 없음)
+     *         주문/취소 트랜잭션 안에서 같이 갱신되므로 커밋된 주문과 항상 맞는다.
+     *
+     * 단점 : 주문상품 목록 대신 상품 종류 수, 총 금액, 대표상품만 준다.(상세는 V5/V6)
+     *       회원명(memberName), 주문상태(orderStatus)로 거를 수 있다.
+     * */
+    @QueryBudget(1)
+    @GetMapping("/api/v7/orders")
+    public CursorResult<List<OrderSummaryDto>> ordersV7(
+            OrderSearch orderSearch,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        int size = pageSize(limit);
+        List<OrderSummaryDto> orders = orderSummaryRepository.findAll(orderSearch, decodeCursor(cursor), size + 1);
+
+        boolean hasNext = orders.size() > size;
+        List<OrderSummaryDto> result = hasNext ? orders.subList(0, size) : orders;
+        return new CursorResult<>(result, nextCursor(hasNext, result, OrderSummaryDto::getOrderId));
+    }
+
+    /**
+     * 전체 주문 내보내기(NDJSON : 한 줄에 주문 1건)
+     *
+     * 개선점 : 다른 API처럼 List로 다 모은 뒤 한번에 직렬화하지 않고, DB에서 읽는 대로 한 줄씩 내려보낸다.
+     *         주문이 아무리 많아도 힙 사용량이 일정하고 첫 바이트가 바로 나간다.
+     *
+     * 알아둘 것 : StreamingResponseBody는 요청 스레드가 아닌 별도(async) 스레드에서 실행되므로
+     *           OSIV의 영속성 컨텍스트가 아니라 OrderExportService의 트랜잭션 안에서 조회한다.
+     * */
+    @GetMapping(value = "/api/orders/export", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> exportOrders() {
+        StreamingResponseBody body = out -> orderExportService.exportOrders(out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
+    /**
+     * 여러 주문 한번에 등록 (주문마다 상품 여러 개)
+     *
+     * 개선점 : 주문 1건 = 트랜잭션 1번, 상품 1개만 가능한 OrderService.order 대신
+     *         회원/상품을 한번에 조회하고 insert를 JDBC batch로 묶어서 대량 주문(B2B 일괄 등록)을 빠르게 처리한다.
+     * */
+    @PostMapping("/api/orders/batch")
+    public CreateOrdersResponse createOrders(@RequestBody @Valid CreateOrdersRequest request) {
+        List<OrderCommand> commands = request.getOrders().stream()
+                .map(o -> new OrderCommand(o.getMemberId(), o.getItems().stream()
+                        .map(i -> new OrderCommand.Line(i.getItemId(), i.getCount()))
+                        .collect(Collectors.toList())))
+                .collect(Collectors.toList());
+
+        return new CreateOrdersResponse(orderService.orderAll(commands));
+    }
+
+    @Data
+    static class CreateOrdersRequest {
+        @NotEmpty @Valid
+        private List<CreateOrderRequest> orders;
+    }
+
+    @Data
+    static class CreateOrderRequest {
+        @NotNull
+        private Long memberId;
+        @NotEmpty @Valid
+        private List<OrderLineRequest> items;
+    }
+
+    @Data
+    static class OrderLineRequest {
+        @NotNull
+        private Long itemId;
+        @Min(1)
+        private int count;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class CreateOrdersResponse {
+        private List<Long> orderIds;
+    }
+
+    // 한 건 더 조회해서 다음 페이지가 있는지 판단한다.
+    private CursorResult<List<OrderQueryDto>> toCursorResult(List<OrderQueryDto> orders, int size) {
+        boolean hasNext = orders.size() > size;
+        List<OrderQueryDto> result = hasNext ? orders.subList(0, size) : orders;
+        return new CursorResult<>(result, nextCursor(hasNext, result, OrderQueryDto::getOrderId));
+    }
+
+    /**
+     * 잘못된 limit, cursor 는 클라이언트 입력 오류(400)
+     */
+    private static int pageSize(int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit은 1 ~ " + MAX_PAGE_SIZE + " 사이여야 합니다.");
+        }
+        return limit;
+    }
+
+    private static <T> String nextCursor(boolean hasNext, List<T> page, Function<T, Long> orderId) {
+        if (!hasNext || page.isEmpty()) {
+            return null;
+        }
+        Long lastOrderId = orderId.apply(page.get(page.size() - 1));
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(String.valueOf(lastOrderId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Long decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            return Long.valueOf(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) { // NumberFormatException 포함
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "잘못된 cursor 입니다.", e);
+        }
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class CursorResult<T> {
+        private T data;
+        private String nextCursor;
     }
 
     @Data
@@ -0,0 +1,68 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import jpabook.jpashop.repository.order.reactive.OrderReactiveQueryRepository;
+import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * R2DBC 조회 API (ReactiveApiServer 의 netty 이벤트 루프에서 실행)
+ *
+ * - 목록은 application/x-ndjson 으로 row 가 나오는 대로 한 줄씩 내보낸다.
+ *   클라이언트가 느리게 읽으면 netty 쓰기 버퍼가 찬 만큼 DB 에서 덜 읽는다.(backpressure)
+ * - 롱 폴링은 새 주문이 생길 때까지 요청을 붙잡고 있지만 스레드는 쓰지 않는다.
+ */
+@Component
+@RequiredArgsConstructor
+public class OrderReactiveApiHandler {
+
+    private static final Duration MAX_WAIT = Duration.ofSeconds(60);
+
+    private final OrderReactiveQueryRepository orderReactiveQueryRepository;
+
+    /**
+     * GET /api/reactive/simple-orders?afterOrderId= (V4 simple-orders)
+     */
+    public Mono<ServerResponse> simpleOrders(ServerRequest request) {
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(orderReactiveQueryRepository.findOrderDtos(afterOrderId(request)), OrderSimpleQueryDto.class);
+    }
+
+    /**
+     * GET /api/reactive/simple-orders/wait?afterOrderId=&limit=100&timeout=30
+     * afterOrderId 다음 주문이 생기면 바로, 아니면 timeout(초) 뒤에 빈 배열
+     */
+    public Mono<ServerResponse> waitSimpleOrders(ServerRequest request) {
+        int limit = request.queryParam("limit").map(Integer::parseInt).orElse(100);
+        Duration timeout = request.queryParam("timeout")
+                .map(seconds -> Duration.ofSeconds(Long.parseLong(seconds)))
+                .filter(t -> t.compareTo(MAX_WAIT) < 0)
+                .orElse(MAX_WAIT.dividedBy(2));
+
+        return orderReactiveQueryRepository.waitForOrderDtos(afterOrderId(request), limit, timeout)
+                .flatMap(orders -> ServerResponse.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(orders));
+    }
+
+    /**
+     * GET /api/reactive/orders?afterOrderId= (V5 orders)
+     */
+    public Mono<ServerResponse> orders(ServerRequest request) {
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(orderReactiveQueryRepository.findAllByDto_optimization(afterOrderId(request)), OrderQueryDto.class);
+    }
+
+    private static Long afterOrderId(ServerRequest request) {
+        return request.queryParam("afterOrderId").map(Long::valueOf).orElse(null);
+    }
+}
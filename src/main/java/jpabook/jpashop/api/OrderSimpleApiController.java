@@ -4,13 +4,18 @@ import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
 
+import jpabook.jpashop.cache.QueryResultCache;
 import jpabook.jpashop.domain.Address;
 import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.fetchplan.FetchPlan;
+import jpabook.jpashop.monitor.QueryBudget;
 import jpabook.jpashop.repository.OrderRepository;
 import jpabook.jpashop.repository.OrderSearch;
 import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryDto;
 import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryRepository;
+import jpabook.jpashop.repository.order.summary.OrderSummaryDto;
+import jpabook.jpashop.repository.order.summary.OrderSummaryRepository;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -29,6 +34,8 @@ public class OrderSimpleApiController {
 
     private final OrderRepository orderRepository;
     private final OrderSimpleQueryRepository orderSimpleQueryRepository;
+    private final OrderSummaryRepository orderSummaryRepository;
+    private final QueryResultCache queryResultCache;
 
 
     /**
@@ -43,7 +50,9 @@ public class OrderSimpleApiController {
      * 문제점 2: 원치않는 필드 데이터까지 다 나오게 된다.
      *          Order 객체만 원했는데 양방향 관계가 있는 다른 객체들까지 다 나온다.
      *
+     * OSIV off : 트랜잭션 밖에서 강제 초기화할 수 없으므로 fetch plan 으로 회원, 배송을 같이 조회한다.
      * */
+    @FetchPlan(Order.WITH_MEMBER_DELIVERY)
     @GetMapping("/api/v1/simple-orders")
     public List<Order> orderV1() {
         List<Order> all = orderRepository.findAllByString(new OrderSearch());
@@ -63,7 +72,9 @@ public class OrderSimpleApiController {
      *
      * 문제점 : n+1 문제 - 터치되는만큼 쿼리가 계속 수행됨(영속성 컨텍스트에 없으면 쿼리로 수행)
      *
+     * OSIV off : DTO 변환은 트랜잭션 밖이므로 fetch plan 으로 회원, 배송을 같이 조회한다.(n+1 없음)
      * */
+    @FetchPlan(Order.WITH_MEMBER_DELIVERY)
     @GetMapping("/api/v2/simple-orders")
     public List<SimpleOrderDto> orderV2() {
         // order 2개가 조회
@@ -87,6 +98,8 @@ public class OrderSimpleApiController {
      * 문제점 : 페치 조인으로 조회시 안 가지고 와도 되는 필드요소들까지 다 가지고 온다.
      *
      * */
+    @FetchPlan(Order.WITH_MEMBER_DELIVERY) // 이미 fetch join 으로 모두 가져온다.(plan 은 선언/확인용)
+    @QueryBudget(1)
     @GetMapping("/api/v3/simple-orders")
     public List<SimpleOrderDto> orderV3() {
         List<SimpleOrderDto> orders = orderRepository.findAllWithMemberDelivery()
@@ -113,11 +126,30 @@ public class OrderSimpleApiController {
      *  2. 필요하면 패치 조인으로 성능을 최적화 한다 -> 대부분 성능 이슈가 해결.(V3)
      *  3. 그래도 안되면 DTO를 직접 만들어서 직접 조회하는 방법을 선택한다.(V4)
      *
+     * 결과 캐시 : 주문/회원 쓰기가 커밋되기 전까지는 캐시된 결과를 그대로 준다.(쿼리 0번)
+     *
      * */
-    @GetMapping("/api/v3/simple-orders")
+    @QueryBudget(1)
+    @GetMapping("/api/v4/simple-orders")
     public List<OrderSimpleQueryDto> orderV4() {
         //return orderRepository.findOrderDtos();
-        return orderSimpleQueryRepository.findOrderDtos();
+        return queryResultCache.get("simple-orders.v4", Collections.emptyList(),
+                orderSimpleQueryRepository::findOrderDtos,
+                QueryResultCache.Region.ORDER, QueryResultCache.Region.MEMBER);
+    }
+
+    /**
+     *
+     * V5    : 주문 요약(order_summary) 테이블 조회
+     *
+     * 개선점 : 주문, 회원, 배송을 조인하지 않는다.(주문/취소할 때 회원명, 배송지, 상태를 미리 한 row 에 써둔다.)
+     *         캐시 없이도 쿼리 1번, 테이블 1개 (최대 1000건)
+     *
+     * */
+    @QueryBudget(1)
+    @GetMapping("/api/v5/simple-orders")
+    public List<OrderSummaryDto> orderV5() {
+        return orderSummaryRepository.findAll(new OrderSearch(), null, 1000);
     }
 
     @Data
@@ -0,0 +1,75 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.service.OrderService;
+import jpabook.jpashop.service.StockHold;
+import jpabook.jpashop.service.StockReservationService;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import javax.validation.Valid;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+/**
+ * 장바구니/결제 재고 예약
+ *
+ * 예약 -> (결제) -> 주문 순서로 호출한다. 예약/해제는 DB 를 거치지 않는다.
+ */
+@RestController
+@RequiredArgsConstructor
+public class StockHoldApiController {
+
+    private final StockReservationService stockReservationService;
+    private final OrderService orderService;
+
+    @PostMapping("/api/items/{id}/holds")
+    public StockHold hold(@PathVariable("id") Long itemId, @RequestBody @Valid HoldRequest request) {
+        return stockReservationService.reserve(itemId, request.getQuantity());
+    }
+
+    @DeleteMapping("/api/holds/{holdId}")
+    public ResponseEntity<Void> release(@PathVariable("holdId") String holdId) {
+        return stockReservationService.release(holdId)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    @PostMapping("/api/holds/{holdId}/order")
+    public OrderResponse order(@PathVariable("holdId") String holdId, @RequestBody @Valid OrderRequest request) {
+        Long orderId = orderService.orderReserved(request.getMemberId(), holdId);
+        return new OrderResponse(orderId);
+    }
+
+    @GetMapping("/api/items/{id}/available")
+    public AvailableResponse available(@PathVariable("id") Long itemId) {
+        return new AvailableResponse(itemId, stockReservationService.available(itemId));
+    }
+
+    @Data
+    static class HoldRequest {
+        @Min(1)
+        private int quantity;
+    }
+
+    @Data
+    static class OrderRequest {
+        @NotNull
+        private Long memberId;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class OrderResponse {
+        private Long orderId;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class AvailableResponse {
+        private Long itemId;
+        private Long available;
+    }
+}
@@ -0,0 +1,62 @@
+package jpabook.jpashop.cache;
+
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.jsr107.Eh107Configuration;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * hibernate 2차 캐시 (JCache + Ehcache, 애플리케이션 메모리)
+ *
+ * - 영역은 엔티티/컬렉션의 @Cache(region = ...) 와 같은 이름으로 미리 만든다.(크기, TTL 은 EntityCacheProperties)
+ * - Item, Member : READ_WRITE (수정되면 커밋 시점에 캐시를 고친다.)
+ *   Delivery, OrderItem : NONSTRICT_READ_WRITE (거의 안 바뀜, 수정 커밋 후 캐시에서 지운다.)
+ *   Order.orderItems : 컬렉션 캐시(주문상품 id 목록), 원소는 order-item 영역에서 꺼낸다.
+ * - 재고처럼 jpql/jdbc 로 직접 바꾸는 곳은 직접 evict 해야 한다.(ItemStockRepository, StockReservationService)
+ * - 영역별 적중률은 /internal/entity-cache
+ */
+@Configuration
+@EnableConfigurationProperties(EntityCacheProperties.class)
+public class EntityCacheConfig {
+
+    public static final List<String> REGIONS = Arrays.asList("item", "member", "delivery", "order-item", "order.orderItems");
+
+    @Bean(destroyMethod = "close")
+    public CacheManager entityCacheManager(EntityCacheProperties properties) {
+        // 컨텍스트마다 따로(테스트에서 컨텍스트가 여러 개 떠도 캐시를 공유하지 않도록)
+        EhcacheCachingProvider provider = new EhcacheCachingProvider();
+        CacheManager cacheManager = provider.getCacheManager(provider.getDefaultURI(), getClass().getClassLoader());
+
+        for (String region : REGIONS) {
+            cacheManager.createCache(region, Eh107Configuration.fromEhcacheCacheConfiguration(
+                    CacheConfigurationBuilder.newCacheConfigurationBuilder(Object.class, Object.class,
+                                    ResourcePoolsBuilder.heap(properties.maxEntries(region)))
+                            .withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(properties.ttl(region)))));
+        }
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer entityCacheHibernateProperties(CacheManager entityCacheManager,
+                                                                       EntityCacheProperties properties) {
+        return hibernateProperties -> {
+            hibernateProperties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            hibernateProperties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            hibernateProperties.put(ConfigSettings.CACHE_MANAGER, entityCacheManager);
+            if (properties.isStatistics()) {
+                hibernateProperties.put(AvailableSettings.GENERATE_STATISTICS, true);
+            }
+        };
+    }
+}
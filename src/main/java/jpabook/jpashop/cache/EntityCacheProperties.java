@@ -0,0 +1,39 @@
+package jpabook.jpashop.cache;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 2차 캐시 영역(region)별 크기, TTL (jpashop.cache.entity)
+ * 영역에 값이 없으면 기본값(maxEntries, ttl)을 쓴다.
+ */
+@Getter @Setter
+@ConfigurationProperties("jpashop.cache.entity")
+public class EntityCacheProperties {
+
+    private boolean statistics = true;
+    private long maxEntries = 10_000;
+    private Duration ttl = Duration.ofMinutes(10);
+    private Map<String, Region> regions = new LinkedHashMap<>();
+
+    @Getter @Setter
+    public static class Region {
+        private Long maxEntries;
+        private Duration ttl;
+    }
+
+    long maxEntries(String region) {
+        Region config = regions.get(region);
+        return config != null && config.maxEntries != null ? config.maxEntries : maxEntries;
+    }
+
+    Duration ttl(String region) {
+        Region config = regions.get(region);
+        return config != null && config.ttl != null ? config.ttl : ttl;
+    }
+}
@@ -0,0 +1,139 @@
+package jpabook.jpashop.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 조회 API 결과 캐시 (쿼리 모양 + 파라미터 -> 결과)
+ *
+ * - 결과마다 어떤 데이터(Region)를 읽었는지 같이 저장한다.
+ * - 서비스의 쓰기 메서드가 커밋되면 invalidateAfterCommit 으로 해당 Region 의 버전을 올린다.
+ *   -> 그 Region 을 읽은 결과는 모두 무효(다음 조회 때 다시 실행). TTL 로 추측하지 않는다.
+ * - 버전은 조회(loader) 시작 전에 읽어두므로, 조회 도중 커밋된 쓰기가 있으면 그 결과는 저장되자마자 무효다.
+ * - 캐시된 결과는 여러 요청이 같이 쓰므로 꺼낸 뒤 수정하면 안 된다.
+ * - max-entries 를 넘으면 전부 비운다.(모양 x 파라미터 조합이 많은 조회에는 쓰지 않는다.)
+ */
+@Component
+public class QueryResultCache {
+
+    public enum Region {
+        MEMBER, ORDER, ITEM
+    }
+
+    private final int maxEntries;
+    private final ConcurrentMap<List<Object>, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLongArray versions = new AtomicLongArray(Region.values().length);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public QueryResultCache(@Value("${jpashop.cache.query.max-entries:1000}") int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * @param shape   쿼리 모양(API/쿼리 이름)
+     * @param params  조회 파라미터
+     * @param loader  캐시에 없거나 무효일 때 실행할 조회
+     * @param regions 조회가 읽는 데이터
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String shape, List<?> params, Supplier<T> loader, Region... regions) {
+        List<Object> key = Arrays.asList(shape, params);
+
+        Entry entry = entries.get(key);
+        if (entry != null && entry.isValid()) {
+            hits.increment();
+            return (T) entry.value;
+        }
+        misses.increment();
+
+        long[] stamp = stamp(regions);
+        T value = loader.get();
+
+        if (entries.size() >= maxEntries) {
+            entries.clear();
+        }
+        entries.put(key, new Entry(value, regions, stamp));
+        return value;
+    }
+
+    /**
+     * 현재 트랜잭션이 커밋되면 regions 를 읽은 결과를 무효로 만든다.(트랜잭션 밖이면 바로)
+     */
+    public void invalidateAfterCommit(Region... regions) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate(regions);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidate(regions);
+            }
+        });
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    public int getSize() {
+        return entries.size();
+    }
+
+    private void invalidate(Region... regions) {
+        for (Region region : regions) {
+            versions.incrementAndGet(region.ordinal());
+        }
+        invalidations.increment();
+    }
+
+    private long[] stamp(Region[] regions) {
+        long[] stamp = new long[regions.length];
+        for (int i = 0; i < regions.length; i++) {
+            stamp[i] = versions.get(regions[i].ordinal());
+        }
+        return stamp;
+    }
+
+    private final class Entry {
+        final Object value;
+        final Region[] regions;
+        final long[] stamp;
+
+        Entry(Object value, Region[] regions, long[] stamp) {
+            this.value = value;
+            this.regions = regions;
+            this.stamp = stamp;
+        }
+
+        boolean isValid() {
+            for (int i = 0; i < regions.length; i++) {
+                if (versions.get(regions[i].ordinal()) != stamp[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
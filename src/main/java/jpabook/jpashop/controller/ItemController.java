@@ -2,7 +2,9 @@ package jpabook.jpashop.controller;
 
 import jpabook.jpashop.domain.item.Book;
 import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.fetchplan.FetchPlan;
 import jpabook.jpashop.service.ItemService;
+import jpabook.jpashop.service.StockReservationService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -18,6 +20,7 @@ import java.util.List;
 public class ItemController {
 
     private final ItemService itemService;
+    private final StockReservationService stockReservationService;
 
     @GetMapping("/items/new")
     public String createForm(Model model) {
@@ -39,13 +42,16 @@ public class ItemController {
         return "redirect:/";
     }
 
+    @FetchPlan(Item.WITH_STOCK_SHARDS) // 화면에서 재고수량을 쓴다.(샤딩된 상품은 샤드 합)
     @GetMapping("/items")
     public String list(Model model) {
         List<Item> items = itemService.findItems();
         model.addAttribute("items", items);
+        model.addAttribute("available", stockReservationService.availableAll()); //주문가능 수량은 메모리에서
         return "items/itemList";
     }
 
+    @FetchPlan(Item.WITH_STOCK_SHARDS)
     @GetMapping("items/{itemId}/edit")
     public String updateItemForm(@PathVariable("itemId") Long itemId, Model model) {
         Book item = (Book) itemService.findOne(itemId);
@@ -0,0 +1,81 @@
+package jpabook.jpashop.datasource;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.time.Duration;
+
+/**
+ * 쓰기 직후 잠깐 동안은 같은 사용자(브라우저/클라이언트)의 읽기도 primary 로 보낸다.(복제 지연 때문에 방금 쓴 값이 replica 에 없을 수 있다.)
+ *
+ * - 쓰기 트랜잭션이 커밋되면 쿠키(jpashop-primary-until)에 "이 시각까지 primary" 를 남긴다.
+ * - 같은 요청 안의 이후 읽기는 request attribute 로 바로 primary
+ * - 웹 요청이 아닌 스레드(배치, 스케줄러, 별도 executor)에서는 적용하지 않는다.
+ */
+final class ReadYourWrites {
+
+    static final String COOKIE = "jpashop-primary-until";
+    private static final String ATTRIBUTE = ReadYourWrites.class.getName();
+
+    private ReadYourWrites() {
+    }
+
+    static boolean isSticky(Duration window) {
+        HttpServletRequest request = currentRequest();
+        if (request == null) {
+            return false;
+        }
+
+        Long until = (Long) request.getAttribute(ATTRIBUTE);
+        if (until == null) {
+            until = fromCookie(request);
+        }
+        long now = System.currentTimeMillis();
+        // 쿠키는 클라이언트가 바꿀 수 있으므로 window 보다 먼 시각은 무시한다.
+        return until != null && until > now && until <= now + window.toMillis();
+    }
+
+    static void markWrite(Duration window) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes)) {
+            return;
+        }
+        long until = System.currentTimeMillis() + window.toMillis();
+        ((ServletRequestAttributes) attributes).getRequest().setAttribute(ATTRIBUTE, until);
+
+        HttpServletResponse response = ((ServletRequestAttributes) attributes).getResponse();
+        if (response != null && !response.isCommitted()) {
+            Cookie cookie = new Cookie(COOKIE, String.valueOf(until));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge((int) Math.max(1, (window.toMillis() + 999) / 1000));
+            response.addCookie(cookie);
+        }
+    }
+
+    private static HttpServletRequest currentRequest() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes instanceof ServletRequestAttributes ? ((ServletRequestAttributes) attributes).getRequest() : null;
+    }
+
+    private static Long fromCookie(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return null;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE.equals(cookie.getName())) {
+                try {
+                    return Long.parseLong(cookie.getValue());
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,74 @@
+package jpabook.jpashop.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jpabook.jpashop.monitor.ConnectionPoolTelemetry;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * primary / replica 읽기 쓰기 분리 (jpashop.datasource.replica.url 이 있을 때만)
+ *
+ * - primary : spring.datasource.*, replica : jpashop.datasource.replica.*
+ * - 스키마 생성(ddl-auto)과 트랜잭션 밖 쿼리는 primary 로 간다.
+ * - OSIV 로 요청 동안 EntityManager 가 살아 있어도 트랜잭션이 끝나면 커넥션을 돌려주도록 한다.
+ *   (기본값은 EntityManager 가 닫힐 때까지 커넥션을 쥐고 있어서, 읽기 트랜잭션에서 얻은 replica 커넥션으로 이후 쓰기가 나갈 수 있다.)
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "jpashop.datasource.replica", name = "url")
+public class ReplicaRoutingConfig {
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(
+            DataSourceProperties primaryProperties,
+            ConnectionPoolTelemetry connectionPoolTelemetry,
+            @Value("${jpashop.datasource.replica.url}") String replicaUrl,
+            @Value("${jpashop.datasource.replica.username:${spring.datasource.username:}}") String replicaUsername,
+            @Value("${jpashop.datasource.replica.password:${spring.datasource.password:}}") String replicaPassword,
+            @Value("${jpashop.datasource.replica.maximum-pool-size:10}") int replicaPoolSize,
+            @Value("${jpashop.datasource.read-your-writes-window:2s}") Duration readYourWritesWindow) {
+
+        HikariDataSource primary = primaryProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        primary.setPoolName("primary");
+        primary.setMetricsTrackerFactory(connectionPoolTelemetry);
+
+        HikariDataSource replica = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(primaryProperties.determineDriverClassName())
+                .url(replicaUrl)
+                .username(replicaUsername)
+                .password(replicaPassword)
+                .build();
+        replica.setPoolName("replica");
+        replica.setMaximumPoolSize(replicaPoolSize);
+        replica.setReadOnly(true);
+        replica.setMetricsTrackerFactory(connectionPoolTelemetry);
+
+        return new ReplicaRoutingDataSource(primary, replica, readYourWritesWindow);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer replicaRoutingHibernateProperties() {
+        return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+}
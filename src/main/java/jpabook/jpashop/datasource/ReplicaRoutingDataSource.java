@@ -0,0 +1,76 @@
+package jpabook.jpashop.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 읽기 전용 트랜잭션(@Transactional(readOnly = true))은 replica, 나머지는 primary 로 보낸다.
+ *
+ * - 커넥션을 얻는 순간 트랜잭션의 readOnly 여부로 정하므로 LazyConnectionDataSourceProxy 로 감싸서 써야 한다.
+ *   (트랜잭션 시작 시점에는 아직 readOnly 여부가 등록되지 않는다. 실제 커넥션은 첫 쿼리 때 얻는다.)
+ * - 트랜잭션 밖(OSIV 지연 로딩 등)과 쓰기 트랜잭션 안에서 호출된 readOnly 메서드는 primary
+ * - stickyWindow 가 0보다 크면 쓰기 커밋 후 그 시간 동안 같은 사용자의 읽기도 primary (ReadYourWrites)
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+    public enum Target {
+        PRIMARY, REPLICA
+    }
+
+    private final HikariDataSource primary;
+    private final HikariDataSource replica;
+    private final Duration stickyWindow;
+
+    public ReplicaRoutingDataSource(HikariDataSource primary, HikariDataSource replica, Duration stickyWindow) {
+        this.primary = primary;
+        this.replica = replica;
+        this.stickyWindow = stickyWindow;
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(Target.PRIMARY, primary);
+        targets.put(Target.REPLICA, replica);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return Target.PRIMARY;
+        }
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return ReadYourWrites.isSticky(stickyWindow) ? Target.PRIMARY : Target.REPLICA;
+        }
+
+        if (!stickyWindow.isZero() && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    ReadYourWrites.markWrite(stickyWindow);
+                }
+            });
+        }
+        return Target.PRIMARY;
+    }
+
+    public HikariDataSource getPrimary() {
+        return primary;
+    }
+
+    public HikariDataSource getReplica() {
+        return replica;
+    }
+
+    @Override
+    public void close() {
+        replica.close();
+        primary.close();
+    }
+}
@@ -1,10 +1,16 @@
 package jpabook.jpashop.domain;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import jpabook.jpashop.domain.item.ItemStockStore;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
 import javax.persistence.*;
 import java.time.LocalDateTime;
@@ -13,13 +19,32 @@ import java.util.List;
 
 import static javax.persistence.FetchType.*;
 
+/**
+ * fetch plan(엔티티 그래프) - 컨트롤러 메서드에 @FetchPlan 으로 선언하면 OrderRepository 조회에 적용된다.
+ */
 @Entity
 @Table(name = "orders")
+@NamedEntityGraphs({
+        @NamedEntityGraph(name = Order.WITH_MEMBER_DELIVERY, attributeNodes = {
+                @NamedAttributeNode("member"),
+                @NamedAttributeNode("delivery")}),
+        @NamedEntityGraph(name = Order.WITH_ITEMS, attributeNodes = {
+                @NamedAttributeNode("member"),
+                @NamedAttributeNode("delivery"),
+                @NamedAttributeNode(value = "orderItems", subgraph = "orderItems")},
+                subgraphs = @NamedSubgraph(name = "orderItems", attributeNodes = @NamedAttributeNode("item")))
+})
 @Getter @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 public class Order {
 
-    @Id @GeneratedValue
+    public static final String WITH_MEMBER_DELIVERY = "Order.withMemberDelivery"; //회원, 배송
+    public static final String WITH_ITEMS = "Order.withItems";                    //회원, 배송, 주문상품, 상품
+
+    @Id
+    @GeneratedValue(generator = "orders_seq")
+    @GenericGenerator(name = "orders_seq", strategy = PooledSequenceGenerator.STRATEGY,
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "orders_seq"))
     @Column(name = "order_id")
     private Long id;
 
@@ -28,6 +53,7 @@ public class Order {
     private Member member;
 
     @OneToMany(mappedBy = "order", cascade = CascadeType.ALL)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "order.orderItems") //주문상품 id 목록만 캐시(OrderItem 은 엔티티 캐시)
     private List<OrderItem> orderItems = new ArrayList<>();
 
     @OneToOne(fetch = LAZY, cascade = CascadeType.ALL)
@@ -70,16 +96,16 @@ public class Order {
 
     //==비즈니스 로직==//
     /**
-     * 주문 취소
+     * 주문 취소 (주문상품 재고는 stockStore 로 되돌린다.)
      */
-    public void cancel() {
+    public void cancel(ItemStockStore stockStore) {
         if (delivery.getStatus() == DeliveryStatus.COMP) {
             throw new IllegalStateException("이미 배송완료된 상품은 취소가 불가능합니다.");
         }
 
         this.setStatus(OrderStatus.CANCEL);
         for (OrderItem orderItem : orderItems) {
-            orderItem.cancel();
+            orderItem.cancel(stockStore);
         }
     }
 
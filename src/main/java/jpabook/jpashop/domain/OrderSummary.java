@@ -0,0 +1,77 @@
+package jpabook.jpashop.domain;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 주문 목록 조회용 요약(읽기 모델) - 주문 1건당 1 row
+ *
+ * 목록 API / 주문 목록 화면이 주문, 회원, 배송, 주문상품, 상품을 조인하지 않고 이 테이블 하나만 읽는다.
+ * 주문/취소(OrderService), 회원 이름 변경(MemberService), 상품 이름 변경(ItemService) 트랜잭션 안에서 같이 갱신한다.
+ * 연관관계를 두지 않는다.(fk 없음, 지연 로딩 없음)
+ */
+@Entity
+@Table(name = "order_summary", indexes = {
+        @Index(name = "idx_order_summary_status", columnList = "status, order_id"),
+        @Index(name = "idx_order_summary_member_name", columnList = "member_name"),
+        @Index(name = "idx_order_summary_member_id", columnList = "member_id"),
+        @Index(name = "idx_order_summary_item_id", columnList = "item_id")
+})
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class OrderSummary {
+
+    @Id
+    @Column(name = "order_id")
+    private Long orderId; //주문 id 그대로
+
+    private Long memberId;
+    private String memberName;
+
+    @Embedded
+    private Address address; //배송지
+
+    @Enumerated(EnumType.STRING)
+    private OrderStatus status;
+
+    private LocalDateTime orderDate;
+
+    private int itemCount;  //주문상품 종류 수
+    private int totalPrice; //Order.getTotalPrice()
+
+    //대표상품(첫 번째 주문상품) - 주문 목록 화면
+    private Long itemId;
+    private String itemName;
+    private int itemPrice;
+    private int itemQuantity;
+
+    //==생성 메서드==//
+    public static OrderSummary from(Order order) {
+        OrderSummary summary = new OrderSummary();
+        summary.orderId = order.getId();
+        summary.memberId = order.getMember().getId();
+        summary.memberName = order.getMember().getName();
+        summary.address = order.getDelivery().getAddress();
+        summary.status = order.getStatus();
+        summary.orderDate = order.getOrderDate();
+        summary.itemCount = order.getOrderItems().size();
+        summary.totalPrice = order.getTotalPrice();
+
+        if (!order.getOrderItems().isEmpty()) {
+            OrderItem first = order.getOrderItems().get(0);
+            summary.itemId = first.getItem().getId();
+            summary.itemName = first.getItem().getName();
+            summary.itemPrice = first.getOrderPrice();
+            summary.itemQuantity = first.getCount();
+        }
+        return summary;
+    }
+
+    public void changeStatus(OrderStatus status) {
+        this.status = status;
+    }
+}
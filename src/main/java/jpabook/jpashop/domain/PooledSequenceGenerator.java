@@ -0,0 +1,51 @@
+package jpabook.jpashop.domain;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Properties;
+
+/**
+ * 엔티티별 시퀀스 + pooled-lo 옵티마이저
+ *
+ * - @GeneratedValue 기본값은 모든 엔티티가 hibernate_sequence 하나를 allocationSize 1로 같이 쓴다.
+ *   -> persist 할 때마다 시퀀스 조회 1번, 모든 쓰기 스레드가 같은 시퀀스에서 경합
+ * - 엔티티마다 시퀀스를 따로 두고, 시퀀스 1번 조회로 allocation_size 개의 id를 메모리에서 나눠준다.
+ * - allocation_size 는 spring.jpa.properties.jpashop.id.allocation_size 로 설정한다.(시퀀스의 increment by 와 같아야 한다.)
+ * - jpashop.id.shared_sequence=true 면 기존 매핑(hibernate_sequence 하나, allocationSize 1)으로 돌아간다.(비교 벤치마크용)
+ *
+ * 기존 데이터 이전은 resources/db/per-entity-sequences.sql 참고
+ */
+public class PooledSequenceGenerator extends SequenceStyleGenerator {
+
+    public static final String STRATEGY = "jpabook.jpashop.domain.PooledSequenceGenerator";
+    public static final String ALLOCATION_SIZE_SETTING = "jpashop.id.allocation_size";
+    public static final String SHARED_SEQUENCE_SETTING = "jpashop.id.shared_sequence";
+
+    private static final int DEFAULT_ALLOCATION_SIZE = 50;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        ConfigurationService configurationService = serviceRegistry.getService(ConfigurationService.class);
+        if (ConfigurationHelper.getBoolean(SHARED_SEQUENCE_SETTING, configurationService.getSettings(), false)) {
+            params.put(SEQUENCE_PARAM, DEF_SEQUENCE_NAME);
+            params.put(INCREMENT_PARAM, "1");
+            params.put(OPT_PARAM, StandardOptimizerDescriptor.NONE.getExternalName());
+            super.configure(type, params, serviceRegistry);
+            return;
+        }
+
+        int allocationSize = ConfigurationHelper.getInt(ALLOCATION_SIZE_SETTING,
+                configurationService.getSettings(), DEFAULT_ALLOCATION_SIZE);
+
+        params.putIfAbsent(INCREMENT_PARAM, String.valueOf(allocationSize));
+        params.putIfAbsent(OPT_PARAM, StandardOptimizerDescriptor.POOLED_LO.getExternalName());
+
+        super.configure(type, params, serviceRegistry);
+    }
+}
@@ -0,0 +1,32 @@
+package jpabook.jpashop.domain.item;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+/**
+ * 확정됐지만 아직 item.stock_quantity 에 반영하지 않은 재고 예약 (StockReservationService)
+ *
+ * 주문과 같은 트랜잭션에서 insert 하고, flush 가 상품별로 모아서 item 에 반영한 뒤 지운다.
+ * -> 주문이 커밋되면 차감분도 남는다.(재시작/장애로 flush 전에 내려가도 유실 X)
+ * owner 는 넣은 StockReservationService 인스턴스 - 자기가 넣은 row 만 반영한다.(시작할 때 남아있던 row 는 가져온다.)
+ * JDBC 로만 읽고 쓴다.
+ */
+@Entity
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class ConfirmedStockHold {
+
+    @Id
+    @Column(name = "hold_id")
+    private String holdId; //StockHold.id
+
+    private String owner;
+
+    private Long itemId;
+    private int quantity;
+}
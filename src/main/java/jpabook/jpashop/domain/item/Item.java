@@ -1,23 +1,39 @@
 package jpabook.jpashop.domain.item;
 
 import jpabook.jpashop.domain.Category;
+import jpabook.jpashop.domain.PooledSequenceGenerator;
 import jpabook.jpashop.exception.NotEnoughStockException;
 import lombok.Getter;
 import lombok.Setter;
 import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
 import javax.persistence.*;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * fetch plan(엔티티 그래프) - 샤딩된 상품의 재고(getStockQuantity)는 stockShards 를 읽으므로
+ * 트랜잭션 밖(뷰, DTO 변환)에서 재고를 쓰는 컨트롤러 메서드는 @FetchPlan(Item.WITH_STOCK_SHARDS) 를 선언한다.
+ */
 @Entity
+@NamedEntityGraph(name = Item.WITH_STOCK_SHARDS, attributeNodes = @NamedAttributeNode("stockShards"))
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "item")
 @Inheritance(strategy = InheritanceType.SINGLE_TABLE)
 @DiscriminatorColumn(name = "dtype")
 @Getter @Setter
 public abstract class Item {
 
+    public static final String WITH_STOCK_SHARDS = "Item.withStockShards"; //재고 샤드
+
     @Id
-    @GeneratedValue
+    @GeneratedValue(generator = "item_seq")
+    @GenericGenerator(name = "item_seq", strategy = PooledSequenceGenerator.STRATEGY,
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "item_seq"))
     @Column(name = "item_id")
     private Long id;
 
@@ -28,11 +44,45 @@ public abstract class Item {
     @ManyToMany(mappedBy = "items")
     private List<Category> categories = new ArrayList<>();
 
+    /**
+     * 재고 샤드 수 (0 : 샤딩 안 함 - stockQuantity 사용, N : 재고를 stockShards N개 row로 나눠서 관리)
+     */
+    private int stockShardCount;
+
+    @OneToMany(mappedBy = "item")
+    @OrderBy("shardNo")
+    private List<ItemStockShard> stockShards = new ArrayList<>();
+
+    /**
+     * 샤딩된 상품은 샤드 재고의 합
+     */
+    public int getStockQuantity() {
+        if (!isStockSharded()) {
+            return stockQuantity;
+        }
+        return stockShards.stream()
+                .mapToInt(ItemStockShard::getQuantity)
+                .sum();
+    }
+
+    public boolean isStockSharded() {
+        return stockShardCount > 0;
+    }
+
     //==비즈니스 로직==//
+    /**
+     * 재고를 shardCount 개의 샤드로 나눈다. (ItemStockRepository.shard 에서 사용)
+     */
+    public void changeStockShardCount(int shardCount) {
+        this.stockShardCount = shardCount;
+        this.stockQuantity = 0;
+    }
+
     /**
      * stock 증가
      */
     public void addStock(int quantity) {
+        checkNotSharded();
         this.stockQuantity += quantity;
     }
 
@@ -40,10 +90,17 @@ public abstract class Item {
      * stock 감소
      */
     public void removeStock(int quantity) {
+        checkNotSharded();
         int restStock = this.stockQuantity - quantity;
         if (restStock < 0) {
             throw new NotEnoughStockException("need more stock");
         }
         this.stockQuantity = restStock;
     }
+
+    private void checkNotSharded() {
+        if (isStockSharded()) {
+            throw new IllegalStateException("샤딩된 재고는 ItemStockRepository 로만 변경할 수 있습니다.");
+        }
+    }
 }
@@ -0,0 +1,58 @@
+package jpabook.jpashop.domain.item;
+
+import jpabook.jpashop.domain.PooledSequenceGenerator;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+
+import javax.persistence.*;
+
+import static javax.persistence.FetchType.*;
+
+/**
+ * 상품 재고 샤드
+ * 주문이 몰리는 상품의 재고를 여러 row 로 나눠서, 주문마다 서로 다른 row 락을 잡게 한다.
+ */
+@Entity
+@Table(name = "item_stock_shard",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"item_id", "shard_no"}))
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+public class ItemStockShard {
+
+    @Id
+    @GeneratedValue(generator = "item_stock_shard_seq")
+    @GenericGenerator(name = "item_stock_shard_seq", strategy = PooledSequenceGenerator.STRATEGY,
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "item_stock_shard_seq"))
+    @Column(name = "item_stock_shard_id")
+    private Long id;
+
+    @ManyToOne(fetch = LAZY)
+    @JoinColumn(name = "item_id")
+    private Item item;
+
+    @Column(name = "shard_no")
+    private int shardNo;
+
+    private int quantity;
+
+    public ItemStockShard(Item item, int shardNo, int quantity) {
+        this.item = item;
+        this.shardNo = shardNo;
+        this.quantity = quantity;
+    }
+
+    //==비즈니스 로직==//
+    /**
+     * 샤드 row 에 락을 잡은 상태에서만 사용한다.
+     */
+    public void removeStock(int quantity) {
+        if (this.quantity < quantity) {
+            throw new IllegalStateException("샤드 재고보다 많이 뺄 수 없습니다.");
+        }
+        this.quantity -= quantity;
+    }
+}
@@ -0,0 +1,32 @@
+package jpabook.jpashop.domain.item;
+
+/**
+ * 재고 증감 방법
+ *
+ * - IN_MEMORY : 엔티티 값을 바꾸고 변경 감지로 반영(읽고-고치고-쓰기). 락 없이 동시에 주문하면 갱신이 유실될 수 있다.
+ * - ItemStockRepository : 조건부 update 한 번으로 DB에서 원자적으로 증감한다.
+ */
+public interface ItemStockStore {
+
+    ItemStockStore IN_MEMORY = new ItemStockStore() {
+        @Override
+        public void removeStock(Item item, int quantity) {
+            item.removeStock(quantity);
+        }
+
+        @Override
+        public void addStock(Item item, int quantity) {
+            item.addStock(quantity);
+        }
+    };
+
+    /**
+     * 재고 감소, 재고가 부족하면 NotEnoughStockException
+     */
+    void removeStock(Item item, int quantity);
+
+    /**
+     * 재고 증가
+     */
+    void addStock(Item item, int quantity);
+}
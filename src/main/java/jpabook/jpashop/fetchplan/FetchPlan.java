@@ -0,0 +1,21 @@
+package jpabook.jpashop.fetchplan;
+
+import java.lang.annotation.*;
+
+/**
+ * 컨트롤러 메소드(요청 1건)가 사용할 fetch plan - 엔티티의 @NamedEntityGraph 이름 (ex. Order.WITH_ITEMS)
+ *
+ * - OSIV 를 끄면 트랜잭션이 끝난 뒤(뷰 렌더링, DTO 변환)에는 지연 로딩이 안 된다.(LazyInitializationException)
+ * - 응답에 필요한 연관관계를 여기에 선언하면 레포지토리가 트랜잭션 안에서 미리 조회한다.(FetchPlanner)
+ * - 선언하지 않은 연관관계를 건드리면 바로 실패한다.
+ * - 없는 그래프 이름이면 애플리케이션 시작 시 실패한다.(FetchPlanRegistry)
+ * - 엔티티를 돌려받는 컨트롤러 메소드는 fetch join 으로 이미 다 가져오더라도 선언한다.(레지스트리에서 요청별 plan 을 모두 볼 수 있게)
+ *   DTO 로 직접 조회하는 메소드(V4 ~ V7)는 엔티티를 쓰지 않으므로 선언하지 않는다.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface FetchPlan {
+
+    String value();
+}
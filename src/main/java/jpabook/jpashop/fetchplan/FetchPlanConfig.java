@@ -0,0 +1,15 @@
+package jpabook.jpashop.fetchplan;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class FetchPlanConfig implements WebMvcConfigurer {
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new FetchPlanInterceptor())
+                .excludePathPatterns("/css/**", "/js/**", "/*.ico", "/error");
+    }
+}
@@ -0,0 +1,28 @@
+package jpabook.jpashop.fetchplan;
+
+/**
+ * 요청 1건 동안의 fetch plan 이름(스레드 로컬)
+ */
+public final class FetchPlanContext {
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private FetchPlanContext() {
+    }
+
+    public static void set(String graphName) {
+        if (graphName == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(graphName);
+        }
+    }
+
+    public static String current() {
+        return CURRENT.get();
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+}
@@ -0,0 +1,38 @@
+package jpabook.jpashop.fetchplan;
+
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * 컨트롤러 메소드의 @FetchPlan 을 요청 동안 FetchPlanContext 에 둔다.
+ *
+ * 비동기 처리(StreamingResponseBody 등)는 첫 dispatch 에서 afterCompletion 이 호출되지 않으므로 afterConcurrentHandlingStarted 에서도 지운다.
+ * (톰캣 스레드에 남으면 같은 스레드의 다음 요청에 엉뚱한 plan 이 적용된다.)
+ */
+public class FetchPlanInterceptor implements AsyncHandlerInterceptor {
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        FetchPlanContext.clear();
+        if (handler instanceof HandlerMethod) {
+            FetchPlan plan = ((HandlerMethod) handler).getMethodAnnotation(FetchPlan.class);
+            if (plan != null) {
+                FetchPlanContext.set(plan.value());
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        FetchPlanContext.clear();
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        FetchPlanContext.clear();
+    }
+}
@@ -0,0 +1,57 @@
+package jpabook.jpashop.fetchplan;
+
+import jpabook.jpashop.monitor.QueryCountInterceptor;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 컨트롤러 메소드별로 선언된 fetch plan 목록
+ *
+ * 시작할 때 모든 @FetchPlan 이 실제 엔티티 그래프를 가리키는지 확인한다.(오타는 요청 시점이 아니라 시작 시점에 실패)
+ */
+@Component
+public class FetchPlanRegistry {
+
+    private final RequestMappingHandlerMapping handlerMapping;
+    private final SessionFactoryImplementor sessionFactory;
+
+    private volatile Map<String, String> plans = Collections.emptyMap();
+
+    public FetchPlanRegistry(RequestMappingHandlerMapping requestMappingHandlerMapping, EntityManagerFactory emf) {
+        this.handlerMapping = requestMappingHandlerMapping;
+        this.sessionFactory = emf.unwrap(SessionFactoryImplementor.class);
+    }
+
+    @EventListener(ContextRefreshedEvent.class)
+    public void register() {
+        Map<String, String> found = new TreeMap<>();
+        for (HandlerMethod handlerMethod : handlerMapping.getHandlerMethods().values()) {
+            FetchPlan plan = handlerMethod.getMethodAnnotation(FetchPlan.class);
+            if (plan == null) {
+                continue;
+            }
+            String handler = QueryCountInterceptor.handlerName(handlerMethod);
+            if (sessionFactory.getMetamodel().findEntityGraphByName(plan.value()) == null) {
+                throw new IllegalStateException(handler + " : 없는 fetch plan(엔티티 그래프) 입니다. - " + plan.value());
+            }
+            found.put(handler, plan.value());
+        }
+        plans = Collections.unmodifiableMap(found);
+    }
+
+    /**
+     * 컨트롤러 메소드 -> fetch plan 이름
+     */
+    public Map<String, String> getPlans() {
+        return plans;
+    }
+}
@@ -0,0 +1,124 @@
+package jpabook.jpashop.fetchplan;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Hibernate;
+import org.hibernate.graph.GraphSemantic;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.AttributeNode;
+import javax.persistence.EntityGraph;
+import javax.persistence.EntityManager;
+import javax.persistence.Subgraph;
+import javax.persistence.TypedQuery;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.ManagedType;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 현재 요청의 fetch plan(@FetchPlan)을 레포지토리 조회에 적용한다.
+ *
+ * - ToOne 은 조회 쿼리에 fetch graph 로 걸어서 조인으로 같이 가져온다.
+ * - 컬렉션(과 그 아래)은 조인하지 않고(row 뻥튀기, 메모리 페이징 X) 조회 직후 트랜잭션 안에서 초기화한다.
+ *   default_batch_fetch_size 덕분에 단계마다 in 쿼리 1번이다.
+ * - plan 이 없거나 다른 엔티티의 plan 이면 아무것도 하지 않는다.(지연 로딩 그대로)
+ * - 트랜잭션 안에서 호출해야 한다.
+ */
+@Component
+@RequiredArgsConstructor
+public class FetchPlanner {
+
+    private final EntityManager em;
+
+    public <T> TypedQuery<T> apply(TypedQuery<T> query, Class<T> type) {
+        EntityGraph<? super T> plan = currentPlan(type);
+        if (plan == null) {
+            return query;
+        }
+        return query.setHint(GraphSemantic.FETCH.getJpaHintName(), toOneGraph(plan, type));
+    }
+
+    public <T> T find(Class<T> type, Object id) {
+        EntityGraph<? super T> plan = currentPlan(type);
+        if (plan == null) {
+            return em.find(type, id);
+        }
+        T entity = em.find(type, id, Map.of(GraphSemantic.FETCH.getJpaHintName(), toOneGraph(plan, type)));
+        if (entity != null) {
+            initialize(List.of(entity), plan.getAttributeNodes());
+        }
+        return entity;
+    }
+
+    /**
+     * plan 의 연관관계를 모두 초기화한다.(이미 초기화된 것은 그대로)
+     */
+    public <T> List<T> initialize(List<T> entities, Class<T> type) {
+        EntityGraph<? super T> plan = currentPlan(type);
+        if (plan != null && !entities.isEmpty()) {
+            initialize(entities, plan.getAttributeNodes());
+        }
+        return entities;
+    }
+
+    private void initialize(Collection<?> entities, List<AttributeNode<?>> nodes) {
+        for (AttributeNode<?> node : nodes) {
+            List<Object> values = new ArrayList<>();
+            for (Object entity : entities) {
+                Object value = attributeValue(entity, node.getAttributeName());
+                if (value == null) {
+                    continue;
+                }
+                Hibernate.initialize(value); // 첫 번째에서 batch size 만큼 같이 로딩된다.
+                if (value instanceof Collection) {
+                    values.addAll((Collection<?>) value);
+                } else {
+                    values.add(value);
+                }
+            }
+
+            @SuppressWarnings("rawtypes")
+            Map<Class, Subgraph> subgraphs = node.getSubgraphs();
+            for (Subgraph<?> subgraph : subgraphs.values()) {
+                initialize(values, subgraph.getAttributeNodes());
+            }
+        }
+    }
+
+    private <T> EntityGraph<? super T> currentPlan(Class<T> type) {
+        String name = FetchPlanContext.current();
+        if (name == null) {
+            return null;
+        }
+        return em.getEntityGraphs(type).stream()
+                .filter(graph -> name.equals(graph.getName()))
+                .findFirst()
+                .orElse(null);
+    }
+
+    private <T> EntityGraph<T> toOneGraph(EntityGraph<? super T> plan, Class<T> type) {
+        ManagedType<T> managedType = em.getMetamodel().managedType(type);
+        EntityGraph<T> graph = em.createEntityGraph(type);
+        for (AttributeNode<?> node : plan.getAttributeNodes()) {
+            if (!managedType.getAttribute(node.getAttributeName()).isCollection()) {
+                graph.addAttributeNodes(node.getAttributeName());
+            }
+        }
+        return graph;
+    }
+
+    private Object attributeValue(Object entity, String attributeName) {
+        Object target = Hibernate.unproxy(entity);
+        Attribute<?, ?> attribute = em.getMetamodel().managedType(target.getClass()).getAttribute(attributeName);
+        try {
+            Field field = (Field) attribute.getJavaMember();
+            field.setAccessible(true);
+            return field.get(target);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(attributeName + " 을 읽을 수 없습니다.", e);
+        }
+    }
+}
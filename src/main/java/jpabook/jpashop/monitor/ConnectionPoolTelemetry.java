@@ -0,0 +1,233 @@
+package jpabook.jpashop.monitor;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * 커넥션 풀(hikari) 사용 현황 - 컨트롤러 메소드(핸들러)별
+ *
+ * - 획득 대기 시간 : 풀에서 커넥션을 받기까지 기다린 시간 (풀이 모자라면 길어진다.)
+ * - 점유 시간      : 커넥션을 받아서 돌려줄 때까지 (뷰 렌더링/직렬화 중에 쥐고 있으면 길어진다.)
+ * - SQL 시간은 QueryContext(X-DB-Time) 참고
+ * - 풀별 active / idle / pending(대기 스레드) 수
+ *
+ * hikari MetricsTrackerFactory 로 연결한다.(ConnectionPoolTelemetryConfig, ReplicaRoutingConfig)
+ * 획득/반납 콜백은 커넥션을 쓰는 스레드에서 호출되므로 핸들러는 QueryContext 에서, 요청 밖이면 스레드 이름에서 가져온다.
+ * leak-threshold 보다 오래 쥐고 있는 커넥션은 핸들러 이름과 함께 경고 로그를 남긴다.(커넥션 1개당 1번)
+ */
+@Slf4j
+@Component
+public class ConnectionPoolTelemetry implements MetricsTrackerFactory, DisposableBean {
+
+    private static final Pattern THREAD_NUMBER = Pattern.compile("\\d+$");
+
+    private final Duration leakThreshold;
+    private final ThreadPoolTaskScheduler scheduler;
+
+    private final ConcurrentMap<String, PoolStats> pools = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, HandlerStats> handlers = new ConcurrentHashMap<>();
+
+    // 지금 빌려간 커넥션 (leak 확인용), 같은 스레드 안에서는 나중에 빌린 것부터 반납한다.
+    private final Set<Borrow> borrowed = ConcurrentHashMap.newKeySet();
+    private final ThreadLocal<Deque<Borrow>> threadBorrows = ThreadLocal.withInitial(ArrayDeque::new);
+
+    public ConnectionPoolTelemetry(@Value("${jpashop.monitor.connection.leak-threshold:5s}") Duration leakThreshold) {
+        this.leakThreshold = leakThreshold;
+
+        this.scheduler = new ThreadPoolTaskScheduler();
+        this.scheduler.setPoolSize(1);
+        this.scheduler.setThreadNamePrefix("connection-leak-");
+        this.scheduler.setDaemon(true);
+        this.scheduler.initialize();
+        this.scheduler.scheduleWithFixedDelay(this::detectLeaks, Duration.ofSeconds(1));
+    }
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        pools.put(poolName, poolStats);
+        return new Tracker(poolName);
+    }
+
+    /**
+     * 풀별 현재 커넥션 수
+     */
+    public List<PoolSnapshot> pools() {
+        return pools.entrySet().stream()
+                .map(e -> new PoolSnapshot(e.getKey(), e.getValue().getActiveConnections(), e.getValue().getIdleConnections(),
+                        e.getValue().getPendingThreads(), e.getValue().getTotalConnections(), e.getValue().getMaxConnections()))
+                .sorted(Comparator.comparing(PoolSnapshot::getPool))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 핸들러별 획득 대기/점유 시간 백분위 (점유 시간 p99 가 긴 순)
+     */
+    public List<HandlerSnapshot> handlers() {
+        return handlers.entrySet().stream()
+                .map(e -> e.getValue().snapshot(e.getKey()))
+                .sorted(Comparator.comparingDouble((HandlerSnapshot s) -> s.getHold().getP99()).reversed())
+                .collect(Collectors.toList());
+    }
+
+    public void reset() {
+        handlers.clear();
+    }
+
+    private void detectLeaks() {
+        long now = System.nanoTime();
+        for (Borrow borrow : borrowed) {
+            if (!borrow.warned && now - borrow.startNanos > leakThreshold.toNanos()) {
+                borrow.warned = true;
+                stats(borrow.handler).leaks.increment();
+                log.warn("[{}] 커넥션을 {}ms 넘게 반납하지 않았습니다. (pool {}, thread {})",
+                        borrow.handler, TimeUnit.NANOSECONDS.toMillis(now - borrow.startNanos), borrow.pool, borrow.threadName);
+            }
+        }
+    }
+
+    private HandlerStats stats(String handler) {
+        return handlers.computeIfAbsent(handler, h -> new HandlerStats());
+    }
+
+    private static String currentHandler() {
+        QueryContext context = QueryContext.current();
+        if (context != null) {
+            return context.getHandler();
+        }
+        // 요청 밖(스케줄러, 비동기 스레드) : 스레드 이름에서 번호를 뗀 것 (ex. [dashboard-])
+        return "[" + THREAD_NUMBER.matcher(Thread.currentThread().getName()).replaceAll("") + "]";
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdown();
+    }
+
+    private final class Tracker implements IMetricsTracker {
+
+        private final String pool;
+
+        Tracker(String pool) {
+            this.pool = pool;
+        }
+
+        @Override
+        public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+            String handler = currentHandler();
+            stats(handler).acquire.recordValue(TimeUnit.NANOSECONDS.toMicros(elapsedAcquiredNanos));
+
+            Borrow borrow = new Borrow(pool, handler, Thread.currentThread().getName(), System.nanoTime());
+            threadBorrows.get().push(borrow);
+            borrowed.add(borrow);
+        }
+
+        @Override
+        public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+            Borrow borrow = threadBorrows.get().poll();
+            String handler = borrow == null ? currentHandler() : borrow.handler;
+            if (borrow != null) {
+                borrowed.remove(borrow);
+            }
+            stats(handler).hold.recordValue(TimeUnit.MILLISECONDS.toMicros(elapsedBorrowedMillis));
+        }
+
+        @Override
+        public void recordConnectionTimeout() {
+            stats(currentHandler()).timeouts.increment();
+        }
+    }
+
+    private static final class Borrow {
+        final String pool;
+        final String handler;
+        final String threadName;
+        final long startNanos;
+        volatile boolean warned;
+
+        Borrow(String pool, String handler, String threadName, long startNanos) {
+            this.pool = pool;
+            this.handler = handler;
+            this.threadName = threadName;
+            this.startNanos = startNanos;
+        }
+    }
+
+    private static final class HandlerStats {
+        final Histogram acquire = new ConcurrentHistogram(3); // us
+        final Histogram hold = new ConcurrentHistogram(3);    // us
+        final LongAdder timeouts = new LongAdder();
+        final LongAdder leaks = new LongAdder();
+
+        HandlerSnapshot snapshot(String handler) {
+            return new HandlerSnapshot(handler, hold.getTotalCount(), timeouts.sum(), leaks.sum(),
+                    Percentiles.of(acquire), Percentiles.of(hold));
+        }
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class PoolSnapshot {
+        private String pool;
+        private int active;
+        private int idle;
+        private int pending;
+        private int total;
+        private int max;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class HandlerSnapshot {
+        private String handler;
+        private long connections;
+        private long timeouts;
+        private long leaks;
+        private Percentiles acquire;
+        private Percentiles hold;
+    }
+
+    /**
+     * ms 단위 백분위
+     */
+    @Data
+    @AllArgsConstructor
+    public static class Percentiles {
+        private double p50;
+        private double p95;
+        private double p99;
+        private double max;
+
+        static Percentiles of(Histogram histogram) {
+            Histogram copy = histogram.copy();
+            return new Percentiles(millis(copy.getValueAtPercentile(50)), millis(copy.getValueAtPercentile(95)),
+                    millis(copy.getValueAtPercentile(99)), millis(copy.getMaxValue()));
+        }
+
+        private static double millis(long micros) {
+            return micros / 1000.0;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package jpabook.jpashop.monitor;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * spring.datasource 로 만들어지는 hikari 풀에 ConnectionPoolTelemetry 를 연결한다.
+ * (풀이 시작되기 전에만 설정할 수 있으므로 빈 초기화 전에)
+ */
+@Configuration
+public class ConnectionPoolTelemetryConfig {
+
+    @Bean
+    public static BeanPostProcessor connectionPoolTelemetryPostProcessor(ObjectProvider<ConnectionPoolTelemetry> telemetry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource && ((HikariDataSource) bean).getMetricsTrackerFactory() == null) {
+                    ((HikariDataSource) bean).setMetricsTrackerFactory(telemetry.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+}
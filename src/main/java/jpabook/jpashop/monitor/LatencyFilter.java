@@ -0,0 +1,88 @@
+package jpabook.jpashop.monitor;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 요청 전체(직렬화, 뷰 렌더링 포함) 시간을 LatencyMonitor 에 기록한다.
+ *
+ * 시작 시각은 지역 변수로 들고 있다가 체인이 끝나면 바로 기록한다.(요청 속성, 객체 생성 없음)
+ * 비동기 요청(DeferredResult, StreamingResponseBody 등)은 비동기 처리가 끝날 때 기록한다.
+ * timeout, error 로 끝나도 기록한다.(가장 느린 요청들이다.) 그 뒤에 onComplete 가 또 호출되어도 한 번만 기록한다.
+ */
+@Component
+public class LatencyFilter extends OncePerRequestFilter {
+
+    private final LatencyMonitor latencyMonitor;
+
+    public LatencyFilter(LatencyMonitor latencyMonitor) {
+        this.latencyMonitor = latencyMonitor;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            Object handler = request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE);
+            if (handler instanceof HandlerMethod) {
+                HandlerMethod handlerMethod = (HandlerMethod) handler;
+                if (request.isAsyncStarted()) {
+                    request.getAsyncContext().addListener(new AsyncLatencyListener(handlerMethod, start));
+                } else {
+                    latencyMonitor.record(handlerMethod.getMethod(), System.nanoTime() - start);
+                }
+            }
+        }
+    }
+
+    private final class AsyncLatencyListener implements AsyncListener {
+
+        private final HandlerMethod handlerMethod;
+        private final long start;
+        private final AtomicBoolean recorded = new AtomicBoolean();
+
+        AsyncLatencyListener(HandlerMethod handlerMethod, long start) {
+            this.handlerMethod = handlerMethod;
+            this.start = start;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            record();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            record();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            record();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+
+        private void record() {
+            if (recorded.compareAndSet(false, true)) {
+                latencyMonitor.record(handlerMethod.getMethod(), System.nanoTime() - start);
+            }
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package jpabook.jpashop.monitor;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 컨트롤러 메소드(핸들러)별 응답 시간 분포 - api/*ApiController, controller/*Controller
+ *
+ * - 요청 경로 : 핸들러별 HdrHistogram Recorder 에 기록만 한다.(락, 할당 없음 - LatencyFilter)
+ *   핸들러 목록은 시작할 때 한 번 만들어 두고 요청 중에는 읽기만 한다.
+ * - interval 마다 Recorder 에서 구간 히스토그램을 꺼내 window 만큼 보관한다.
+ * - current : 직전 interval, window : 최근 window 전체 (/internal/latency)
+ */
+@Component
+public class LatencyMonitor implements DisposableBean {
+
+    private static final long HIGHEST_MICROS = TimeUnit.MINUTES.toMicros(10);
+    private static final List<String> PACKAGES = List.of("jpabook.jpashop.api.", "jpabook.jpashop.controller.");
+
+    private final RequestMappingHandlerMapping handlerMapping;
+    private final Duration interval;
+    private final int intervalsPerWindow;
+    private final ThreadPoolTaskScheduler scheduler;
+
+    private volatile Map<Method, HandlerLatency> handlers = Collections.emptyMap();
+    private boolean started;
+
+    public LatencyMonitor(RequestMappingHandlerMapping requestMappingHandlerMapping,
+                          @Value("${jpashop.monitor.latency.interval:10s}") Duration interval,
+                          @Value("${jpashop.monitor.latency.window:1m}") Duration window) {
+        this.handlerMapping = requestMappingHandlerMapping;
+        this.interval = interval;
+        this.intervalsPerWindow = (int) Math.max(1, window.toMillis() / interval.toMillis());
+
+        this.scheduler = new ThreadPoolTaskScheduler();
+        this.scheduler.setPoolSize(1);
+        this.scheduler.setThreadNamePrefix("latency-");
+        this.scheduler.setDaemon(true);
+        this.scheduler.initialize();
+    }
+
+    @EventListener(ContextRefreshedEvent.class)
+    public synchronized void register() {
+        Map<Method, HandlerLatency> found = new HashMap<>();
+        for (HandlerMethod handlerMethod : handlerMapping.getHandlerMethods().values()) {
+            String beanType = handlerMethod.getBeanType().getName();
+            if (PACKAGES.stream().anyMatch(beanType::startsWith)) {
+                found.putIfAbsent(handlerMethod.getMethod(), new HandlerLatency(QueryCountInterceptor.handlerName(handlerMethod)));
+            }
+        }
+        handlers = Collections.unmodifiableMap(found);
+        if (!started) {
+            scheduler.scheduleAtFixedRate(this::rotate, interval);
+            started = true;
+        }
+    }
+
+    /**
+     * 요청 경로 - 등록되지 않은 핸들러(MonitorController 등)는 무시
+     */
+    public void record(Method handler, long elapsedNanos) {
+        HandlerLatency latency = handlers.get(handler);
+        if (latency != null) {
+            latency.recorder.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(elapsedNanos), HIGHEST_MICROS));
+        }
+    }
+
+    /**
+     * 핸들러별 current / window 백분위 (window p99 가 긴 순)
+     */
+    public LatencyReport report() {
+        List<HandlerSnapshot> snapshots = handlers.values().stream()
+                .map(HandlerLatency::snapshot)
+                .sorted(Comparator.comparingDouble((HandlerSnapshot s) -> s.getWindow().getP99()).reversed()
+                        .thenComparing(HandlerSnapshot::getHandler))
+                .collect(Collectors.toList());
+        return new LatencyReport(interval.getSeconds(), interval.multipliedBy(intervalsPerWindow).getSeconds(), snapshots);
+    }
+
+    void rotate() {
+        handlers.values().forEach(HandlerLatency::rotate);
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdown();
+    }
+
+    private final class HandlerLatency {
+        final String handler;
+        final Recorder recorder = new Recorder(HIGHEST_MICROS, 3);
+        final Deque<Histogram> intervals = new ArrayDeque<>();
+        Histogram recycle;
+
+        HandlerLatency(String handler) {
+            this.handler = handler;
+        }
+
+        synchronized void rotate() {
+            Histogram current = recorder.getIntervalHistogram(recycle);
+            intervals.addLast(current);
+            recycle = intervals.size() > intervalsPerWindow ? intervals.removeFirst() : null;
+        }
+
+        synchronized HandlerSnapshot snapshot() {
+            Histogram window = new Histogram(HIGHEST_MICROS, 3);
+            intervals.forEach(window::add);
+            Histogram current = intervals.isEmpty() ? new Histogram(HIGHEST_MICROS, 3) : intervals.getLast();
+            return new HandlerSnapshot(handler, Percentiles.of(current), Percentiles.of(window));
+        }
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class LatencyReport {
+        private long intervalSeconds;
+        private long windowSeconds;
+        private List<HandlerSnapshot> handlers;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class HandlerSnapshot {
+        private String handler;
+        private Percentiles current;
+        private Percentiles window;
+    }
+
+    /**
+     * ms 단위 백분위
+     */
+    @Data
+    @AllArgsConstructor
+    public static class Percentiles {
+        private long count;
+        private double p50;
+        private double p90;
+        private double p99;
+        private double p999;
+        private double max;
+
+        static Percentiles of(Histogram histogram) {
+            return new Percentiles(histogram.getTotalCount(),
+                    millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(90)),
+                    millis(histogram.getValueAtPercentile(99)), millis(histogram.getValueAtPercentile(99.9)),
+                    millis(histogram.getMaxValue()));
+        }
+
+        private static double millis(long micros) {
+            return micros / 1000.0;
+        }
+    }
+}
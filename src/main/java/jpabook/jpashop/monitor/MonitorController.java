@@ -0,0 +1,124 @@
+package jpabook.jpashop.monitor;
+
+import jpabook.jpashop.cache.EntityCacheConfig;
+import jpabook.jpashop.cache.QueryResultCache;
+import jpabook.jpashop.repository.OrderSearchQueryCache;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 내부 확인용 API
+ */
+@RestController
+@RequiredArgsConstructor
+public class MonitorController {
+
+    private final OrderSearchQueryCache orderSearchQueryCache;
+    private final EntityManagerFactory emf;
+    private final QueryResultCache queryResultCache;
+    private final PinningMonitor pinningMonitor;
+    private final ConnectionPoolTelemetry connectionPoolTelemetry;
+    private final LatencyMonitor latencyMonitor;
+
+    @GetMapping("/internal/order-search-cache")
+    public QueryCacheStats orderSearchCache() {
+        return new QueryCacheStats(orderSearchQueryCache.getShapeCount(),
+                orderSearchQueryCache.getHits(), orderSearchQueryCache.getMisses());
+    }
+
+    /**
+     * 가상 스레드 pinning 위치 (가상 스레드 모드일 때만 수집)
+     */
+    @GetMapping("/internal/pinning")
+    public List<PinningMonitor.PinningSite> pinning() {
+        return pinningMonitor.report();
+    }
+
+    /**
+     * 커넥션 풀 현황 + 핸들러별 커넥션 획득 대기/점유 시간 백분위(ms), reset=true 면 조회 후 핸들러 통계를 비운다.
+     */
+    @GetMapping("/internal/connection-pool")
+    public ConnectionPoolStats connectionPool(@RequestParam(value = "reset", defaultValue = "false") boolean reset) {
+        ConnectionPoolStats stats = new ConnectionPoolStats(connectionPoolTelemetry.pools(), connectionPoolTelemetry.handlers());
+        if (reset) {
+            connectionPoolTelemetry.reset();
+        }
+        return stats;
+    }
+
+    /**
+     * 핸들러별 응답 시간 백분위(ms) - 직전 interval / 최근 window
+     */
+    @GetMapping("/internal/latency")
+    public LatencyMonitor.LatencyReport latency() {
+        return latencyMonitor.report();
+    }
+
+    @GetMapping("/internal/query-cache")
+    public ResultCacheStats queryCache() {
+        return new ResultCacheStats(queryResultCache.getSize(), queryResultCache.getHits(),
+                queryResultCache.getMisses(), queryResultCache.getInvalidations());
+    }
+
+    /**
+     * 2차 캐시 영역별 적중률 (jpashop.cache.entity.statistics=true 일 때만 집계된다.)
+     */
+    @GetMapping("/internal/entity-cache")
+    public List<RegionStats> entityCache() {
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+        return EntityCacheConfig.REGIONS.stream()
+                .map(region -> {
+                    CacheRegionStatistics stats = statistics.getDomainDataRegionStatistics(region);
+                    long hits = stats.getHitCount();
+                    long misses = stats.getMissCount();
+                    double hitRatio = hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+                    return new RegionStats(region, hits, misses, stats.getPutCount(), hitRatio);
+                })
+                .collect(Collectors.toList());
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class ConnectionPoolStats {
+        private List<ConnectionPoolTelemetry.PoolSnapshot> pools;
+        private List<ConnectionPoolTelemetry.HandlerSnapshot> handlers;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class RegionStats {
+        private String region;
+        private long hits;
+        private long misses;
+        private long puts;
+        private double hitRatio;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class ResultCacheStats {
+        private int entries;
+        private long hits;
+        private long misses;
+        private long invalidations;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class QueryCacheStats {
+        private int shapes;
+        private long hits;
+        private long misses;
+    }
+}
@@ -0,0 +1,137 @@
+package jpabook.jpashop.monitor;
+
+import jpabook.jpashop.server.VirtualThreads;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * 가상 스레드 고정(pinning) 수집
+ *
+ * - JFR 이벤트 jdk.VirtualThreadPinned(threshold 이상 고정된 경우)를 앱 안에서 받아서 고정된 위치별로 센다.
+ * - 위치는 스택에서 우리 코드(jpabook.)의 첫 프레임, 없으면(hibernate/드라이버 내부) 맨 위 프레임
+ * - 가상 스레드 모드(jpashop.server.virtual-threads)이고 JDK 21 이상일 때만 동작한다.(RecordingStream 은 리플렉션으로 사용)
+ * - 스택 전체가 필요하면 -Djdk.tracePinnedThreads=full 로 실행한다.
+ */
+@Slf4j
+@Component
+public class PinningMonitor implements DisposableBean {
+
+    private static final String EVENT = "jdk.VirtualThreadPinned";
+    private static final String APP_PACKAGE = "jpabook.";
+
+    private final boolean enabled;
+    private final Duration threshold;
+    private final ConcurrentMap<String, Site> sites = new ConcurrentHashMap<>();
+
+    private AutoCloseable stream;
+
+    public PinningMonitor(@Value("${jpashop.server.virtual-threads:false}") boolean enabled,
+                          @Value("${jpashop.server.pinning-threshold:20ms}") Duration threshold) {
+        this.enabled = enabled;
+        this.threshold = threshold;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled || !VirtualThreads.isSupported()) {
+            return;
+        }
+        try {
+            Class<?> recordingStream = Class.forName("jdk.jfr.consumer.RecordingStream");
+            Object stream = recordingStream.getConstructor().newInstance();
+            Object settings = recordingStream.getMethod("enable", String.class).invoke(stream, EVENT);
+            Class.forName("jdk.jfr.EventSettings").getMethod("withThreshold", Duration.class).invoke(settings, threshold);
+            Class.forName("jdk.jfr.EventSettings").getMethod("withStackTrace").invoke(settings);
+
+            Consumer<RecordedEvent> onPinned = this::record;
+            recordingStream.getMethod("onEvent", String.class, Consumer.class).invoke(stream, EVENT, onPinned);
+            recordingStream.getMethod("startAsync").invoke(stream);
+            this.stream = (AutoCloseable) stream;
+            log.info("가상 스레드 pinning 수집 시작 (threshold {})", threshold);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.warn("가상 스레드 pinning 수집을 시작하지 못했습니다.", e);
+        }
+    }
+
+    /**
+     * 고정된 횟수가 많은 순
+     */
+    public List<PinningSite> report() {
+        return sites.entrySet().stream()
+                .map(e -> new PinningSite(e.getKey(), e.getValue().count.sum(),
+                        e.getValue().totalNanos.sum() / 1_000_000, e.getValue().stack))
+                .sorted(Comparator.comparingLong(PinningSite::getCount).reversed())
+                .collect(Collectors.toList());
+    }
+
+    private void record(RecordedEvent event) {
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        List<RecordedFrame> frames = stackTrace == null ? List.of() : stackTrace.getFrames();
+
+        String location = frames.stream()
+                .filter(f -> f.isJavaFrame() && f.getMethod().getType().getName().startsWith(APP_PACKAGE))
+                .findFirst()
+                .or(() -> frames.stream().filter(RecordedFrame::isJavaFrame).findFirst())
+                .map(PinningMonitor::format)
+                .orElse("unknown");
+
+        Site site = sites.computeIfAbsent(location, l -> new Site(frames.stream()
+                .filter(RecordedFrame::isJavaFrame)
+                .limit(20)
+                .map(PinningMonitor::format)
+                .collect(Collectors.toList())));
+        site.count.increment();
+        site.totalNanos.add(event.getDuration().toNanos());
+
+        if (site.count.sum() == 1) {
+            log.warn("가상 스레드 pinning : {} ({} ms)", location, event.getDuration().toMillis());
+        }
+    }
+
+    private static String format(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    private static final class Site {
+        final List<String> stack;
+        final LongAdder count = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+
+        Site(List<String> stack) {
+            this.stack = stack;
+        }
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class PinningSite {
+        private String location;
+        private long count;
+        private long totalMillis;
+        private List<String> stack;
+    }
+}
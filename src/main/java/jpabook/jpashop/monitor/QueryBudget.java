@@ -0,0 +1,19 @@
+package jpabook.jpashop.monitor;
+
+import java.lang.annotation.*;
+
+/**
+ * 컨트롤러 메소드 1번 호출(요청 1건)에서 허용하는 SQL 실행 수
+ *
+ * - 초과하면 경고 로그를 남긴다.
+ * - reject = true 면 초과하는 순간 QueryBudgetExceededException 으로 요청을 실패시킨다.(n+1 회귀를 테스트에서 바로 잡는 용도)
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface QueryBudget {
+
+    int value();
+
+    boolean reject() default false;
+}
@@ -0,0 +1,103 @@
+package jpabook.jpashop.monitor;
+
+import jpabook.jpashop.exception.QueryBudgetExceededException;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * 요청 1건 동안 실행된 SQL 집계(스레드 로컬)
+ *
+ * - 실행 수, DB 시간, 쿼리 모양(shape)별 실행 횟수를 센다.
+ * - 같은 모양의 쿼리가 반복되면 n+1 을 의심할 수 있다.(ex. V2의 order.getMember().getName() 마다 나가는 select)
+ */
+public class QueryContext {
+
+    private static final ThreadLocal<QueryContext> CURRENT = new ThreadLocal<>();
+
+    // in (?, ?, ?) 처럼 파라미터 수만 다른 쿼리는 같은 모양으로 본다.
+    private static final Pattern IN_LIST = Pattern.compile("\\(\\s*\\?(\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final String handler;
+    private final QueryBudget budget;
+
+    private int statementCount;
+    private long dbTimeNanos;
+    private final Map<String, Integer> shapes = new HashMap<>();
+
+    private QueryContext(String handler, QueryBudget budget) {
+        this.handler = handler;
+        this.budget = budget;
+    }
+
+    public static QueryContext start(String handler, QueryBudget budget) {
+        QueryContext context = new QueryContext(handler, budget);
+        CURRENT.set(context);
+        return context;
+    }
+
+    public static QueryContext current() {
+        return CURRENT.get();
+    }
+
+    public static QueryContext end() {
+        QueryContext context = CURRENT.get();
+        CURRENT.remove();
+        return context;
+    }
+
+    void onStatement(String sql) {
+        statementCount++;
+        shapes.merge(shapeOf(sql), 1, Integer::sum);
+
+        if (budget != null && budget.reject() && statementCount > budget.value()) {
+            throw new QueryBudgetExceededException(
+                    handler + " : SQL 실행 수가 허용치(" + budget.value() + ")를 넘었습니다.");
+        }
+    }
+
+    void addDbTime(long nanos) {
+        dbTimeNanos += nanos;
+    }
+
+    public String getHandler() {
+        return handler;
+    }
+
+    public int getStatementCount() {
+        return statementCount;
+    }
+
+    public double getDbTimeMillis() {
+        return dbTimeNanos / 1_000_000.0;
+    }
+
+    public boolean isOverBudget() {
+        return budget != null && statementCount > budget.value();
+    }
+
+    public int getBudget() {
+        return budget == null ? -1 : budget.value();
+    }
+
+    /**
+     * threshold 번 이상 반복된 쿼리 모양
+     */
+    public Map<String, Integer> repeatedShapes(int threshold) {
+        Map<String, Integer> repeated = new LinkedHashMap<>();
+        shapes.forEach((shape, count) -> {
+            if (count >= threshold) {
+                repeated.put(shape, count);
+            }
+        });
+        return repeated;
+    }
+
+    static String shapeOf(String sql) {
+        String shape = WHITESPACE.matcher(sql.trim()).replaceAll(" ");
+        return IN_LIST.matcher(shape).replaceAll("(?...)");
+    }
+}
@@ -0,0 +1,18 @@
+package jpabook.jpashop.monitor;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * hibernate 가 SQL 을 준비할 때마다 호출된다. 현재 요청의 QueryContext 에 실행 수와 쿼리 모양을 기록한다.
+ */
+public class QueryCountInspector implements StatementInspector {
+
+    @Override
+    public String inspect(String sql) {
+        QueryContext context = QueryContext.current();
+        if (context != null) {
+            context.onStatement(sql);
+        }
+        return sql;
+    }
+}
@@ -0,0 +1,89 @@
+package jpabook.jpashop.monitor;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Map;
+
+/**
+ * 요청 단위 SQL 집계
+ *
+ * - preHandle    : QueryContext 시작, 컨트롤러 메소드의 @QueryBudget 확인
+ * - postHandle   : 화면(view) 응답은 렌더링 전에 X-Query-Count / X-DB-Time 헤더를 단다.(@ResponseBody 응답은 QueryCountResponseAdvice 에서)
+ * - afterCompletion : 허용치 초과, 반복되는 쿼리 모양(n+1 의심)을 로그로 남긴다.
+ *                     렌더링/직렬화 중에 나간 쿼리까지 포함된 최종 값이다.
+ *                     (OSIV 는 꺼져 있다. 렌더링에 필요한 연관관계는 @FetchPlan 으로 서비스/리포지토리에서 미리 조회한다.)
+ * - afterConcurrentHandlingStarted : 비동기 처리(StreamingResponseBody 등)는 첫 dispatch 에서 afterCompletion 이 호출되지 않는다.
+ *                     여기서 끝내지 않으면 스레드 로컬이 톰캣 스레드에 남아 다음 요청에 섞인다.
+ *                     비동기 스레드에서 나간 쿼리는 집계하지 않고, 끝난 뒤의 async dispatch 는 새 요청처럼 다시 집계한다.
+ */
+@Slf4j
+public class QueryCountInterceptor implements AsyncHandlerInterceptor {
+
+    public static final String QUERY_COUNT_HEADER = "X-Query-Count";
+    public static final String DB_TIME_HEADER = "X-DB-Time";
+
+    private final int repeatThreshold;
+
+    public QueryCountInterceptor(int repeatThreshold) {
+        this.repeatThreshold = repeatThreshold;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod) {
+            HandlerMethod handlerMethod = (HandlerMethod) handler;
+            QueryContext.start(handlerName(handlerMethod), handlerMethod.getMethodAnnotation(QueryBudget.class));
+        }
+        return true;
+    }
+
+    @Override
+    public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler, ModelAndView modelAndView) {
+        writeHeaders(response);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        report(QueryContext.end());
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        report(QueryContext.end());
+    }
+
+    private void report(QueryContext context) {
+        if (context == null) {
+            return;
+        }
+
+        if (context.isOverBudget()) {
+            log.warn("[{}] SQL {}회 실행 (허용 {}회), DB {}ms",
+                    context.getHandler(), context.getStatementCount(), context.getBudget(), context.getDbTimeMillis());
+        }
+
+        Map<String, Integer> repeated = context.repeatedShapes(repeatThreshold);
+        if (!repeated.isEmpty()) {
+            repeated.forEach((shape, count) ->
+                    log.warn("[{}] n+1 의심 - 같은 쿼리 {}회 반복 : {}", context.getHandler(), count, shape));
+        }
+    }
+
+    static void writeHeaders(HttpServletResponse response) {
+        QueryContext context = QueryContext.current();
+        if (context == null || response.isCommitted()) {
+            return;
+        }
+        response.setHeader(QUERY_COUNT_HEADER, String.valueOf(context.getStatementCount()));
+        response.setHeader(DB_TIME_HEADER, String.format("%.3f", context.getDbTimeMillis()));
+    }
+
+    public static String handlerName(HandlerMethod handlerMethod) {
+        return handlerMethod.getBeanType().getSimpleName() + "." + handlerMethod.getMethod().getName();
+    }
+}
@@ -0,0 +1,54 @@
+package jpabook.jpashop.monitor;
+
+import jpabook.jpashop.exception.QueryBudgetExceededException;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @ResponseBody 응답은 postHandle 전에 바디가 써지므로, 바디를 쓰기 직전에 X-Query-Count / X-DB-Time 헤더를 단다.
+ * @QueryBudget(reject = true) 를 넘은 요청은 500 과 함께 핸들러, 허용치, 실행 수를 바디로 돌려준다.
+ */
+@ControllerAdvice
+public class QueryCountResponseAdvice implements ResponseBodyAdvice<Object> {
+
+    @ExceptionHandler(QueryBudgetExceededException.class)
+    public ResponseEntity<Map<String, Object>> queryBudgetExceeded(QueryBudgetExceededException e) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("error", "QUERY_BUDGET_EXCEEDED");
+        body.put("message", e.getMessage());
+        QueryContext context = QueryContext.current();
+        if (context != null) {
+            body.put("handler", context.getHandler());
+            body.put("budget", context.getBudget());
+            body.put("statementCount", context.getStatementCount());
+        }
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(body);
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (response instanceof ServletServerHttpResponse) {
+            QueryCountInterceptor.writeHeaders(((ServletServerHttpResponse) response).getServletResponse());
+        }
+        return body;
+    }
+}
@@ -0,0 +1,30 @@
+package jpabook.jpashop.monitor;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class QueryMonitorConfig implements WebMvcConfigurer {
+
+    @Value("${jpashop.monitor.query.repeat-threshold:5}")
+    private int repeatThreshold;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new QueryCountInterceptor(repeatThreshold))
+                .excludePathPatterns("/css/**", "/js/**", "/*.ico", "/error");
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer queryMonitorHibernateProperties() {
+        return properties -> {
+            properties.put(AvailableSettings.STATEMENT_INSPECTOR, new QueryCountInspector());
+            properties.put(AvailableSettings.AUTO_SESSION_EVENTS_LISTENER, QueryTimeSessionListener.class.getName());
+        };
+    }
+}
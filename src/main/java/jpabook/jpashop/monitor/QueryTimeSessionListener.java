@@ -0,0 +1,41 @@
+package jpabook.jpashop.monitor;
+
+import org.hibernate.BaseSessionEventListener;
+
+/**
+ * 세션(영속성 컨텍스트)마다 하나씩 생성되어 JDBC execute 시간을 현재 요청의 QueryContext 에 더한다.
+ * hibernate.session.events.auto 로 등록되므로 기본 생성자가 있어야 한다.
+ */
+public class QueryTimeSessionListener extends BaseSessionEventListener {
+
+    private long executeStart = -1;
+    private long batchStart = -1;
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        executeStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        executeStart = record(executeStart);
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        batchStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        batchStart = record(batchStart);
+    }
+
+    private long record(long start) {
+        QueryContext context = QueryContext.current();
+        if (context != null && start >= 0) {
+            context.addDbTime(System.nanoTime() - start);
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,85 @@
+package jpabook.jpashop.reactive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jpabook.jpashop.api.OrderReactiveApiHandler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.LoopResources;
+
+/**
+ * R2DBC 조회 API 서버 (jpashop.reactive.enabled=true, reactive 프로파일)
+ *
+ * - 서블릿(톰캣) 앱은 그대로 두고, 별도 포트(jpashop.reactive.port)에 netty 서버를 하나 더 띄운다.
+ * - 요청은 event-loop-threads 개의 이벤트 루프 스레드가 모두 처리한다.(요청당 스레드 X)
+ *   동시에 수천 개의 롱 폴링 요청이 붙어 있어도 스레드 수는 그대로다.
+ * - JSON 은 MVC 와 같은 ObjectMapper 를 쓴다.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "jpashop.reactive.enabled", havingValue = "true")
+public class ReactiveApiServer implements DisposableBean {
+
+    private final OrderReactiveApiHandler orderHandler;
+    private final ObjectMapper objectMapper;
+    private final int port;
+    private final LoopResources loops;
+
+    private DisposableServer server;
+
+    public ReactiveApiServer(OrderReactiveApiHandler orderHandler,
+                             ObjectMapper objectMapper,
+                             @Value("${jpashop.reactive.port:8081}") int port,
+                             @Value("${jpashop.reactive.event-loop-threads:4}") int eventLoopThreads) {
+        this.orderHandler = orderHandler;
+        this.objectMapper = objectMapper;
+        this.port = port;
+        this.loops = LoopResources.create("reactive-api", eventLoopThreads, true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        HandlerStrategies strategies = HandlerStrategies.builder()
+                .codecs(codecs -> {
+                    codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper));
+                    codecs.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper));
+                })
+                .build();
+
+        server = HttpServer.create()
+                .port(port)
+                .runOn(loops)
+                .handle(new ReactorHttpHandlerAdapter(RouterFunctions.toHttpHandler(routes(), strategies)))
+                .bindNow();
+        log.info("R2DBC 조회 API 서버 - port {}", server.port());
+    }
+
+    private RouterFunction<ServerResponse> routes() {
+        return RouterFunctions.route()
+                .GET("/api/reactive/simple-orders", orderHandler::simpleOrders)
+                .GET("/api/reactive/simple-orders/wait", orderHandler::waitSimpleOrders)
+                .GET("/api/reactive/orders", orderHandler::orders)
+                .build();
+    }
+
+    @Override
+    public void destroy() {
+        if (server != null) {
+            server.disposeNow();
+        }
+        loops.dispose();
+    }
+}
@@ -0,0 +1,76 @@
+package jpabook.jpashop.reactive;
+
+import io.r2dbc.h2.H2ConnectionConfiguration;
+import io.r2dbc.h2.H2ConnectionFactory;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+
+/**
+ * 조회 전용 R2DBC 커넥션 풀 (JPA 와 별도)
+ *
+ * - 주소는 jpashop.reactive.url > jpashop.datasource.replica.url > spring.datasource.url 순서 (jdbc:h2: 형식 그대로)
+ * - ConnectionFactory 는 빈으로 등록하지 않는다.(등록하면 스프링 부트가 JDBC DataSource 자동 설정을 끈다.)
+ * - r2dbc-h2 는 내부에서 H2 JDBC 엔진을 블로킹으로 호출한다.
+ *   쿼리 실행만 dbScheduler(풀 크기만큼의 스레드)로 넘겨서 이벤트 루프가 막히지 않게 한다.
+ *   (postgres/mysql 같은 논블로킹 드라이버로 바꾸면 필요 없다.)
+ */
+@Slf4j
+@Component
+public class ReactiveDatabase implements DisposableBean {
+
+    private static final String H2_PREFIX = "jdbc:h2:";
+
+    private final ConnectionPool pool;
+    private final DatabaseClient client;
+    private final Scheduler dbScheduler;
+
+    public ReactiveDatabase(DataSourceProperties dataSourceProperties,
+                            @Value("${jpashop.reactive.url:${jpashop.datasource.replica.url:}}") String url,
+                            @Value("${jpashop.reactive.pool-size:10}") int poolSize) {
+        String jdbcUrl = StringUtils.hasText(url) ? url : dataSourceProperties.determineUrl();
+        if (jdbcUrl == null || !jdbcUrl.startsWith(H2_PREFIX)) {
+            throw new IllegalStateException("R2DBC 조회는 H2 만 지원합니다. : " + jdbcUrl);
+        }
+
+        H2ConnectionConfiguration configuration = H2ConnectionConfiguration.builder()
+                .url(jdbcUrl.substring(H2_PREFIX.length()))
+                .username(dataSourceProperties.determineUsername())
+                .password(StringUtils.hasText(dataSourceProperties.determinePassword()) ? dataSourceProperties.determinePassword() : "")
+                .build();
+
+        this.pool = new ConnectionPool(ConnectionPoolConfiguration.builder(new H2ConnectionFactory(configuration))
+                .name("reactive-read")
+                .initialSize(0)
+                .maxSize(poolSize)
+                .maxIdleTime(Duration.ofMinutes(10))
+                .build());
+        this.client = DatabaseClient.create(pool);
+        this.dbScheduler = Schedulers.newBoundedElastic(poolSize, Integer.MAX_VALUE, "r2dbc-h2");
+        log.info("R2DBC 조회 풀 - {} (최대 {})", jdbcUrl, poolSize);
+    }
+
+    public DatabaseClient getClient() {
+        return client;
+    }
+
+    public Scheduler getDbScheduler() {
+        return dbScheduler;
+    }
+
+    @Override
+    public void destroy() {
+        pool.dispose();
+        dbScheduler.dispose();
+    }
+}
@@ -1,17 +1,25 @@
 package jpabook.jpashop.repository;
 
 import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.fetchplan.FetchPlanner;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import java.util.Collection;
 import java.util.List;
 
+/**
+ * 상품 조회(findOne, findAll)는 요청의 fetch plan(@FetchPlan)을 적용한다.(FetchPlanner)
+ * 트랜잭션은 호출하는 서비스의 것을 쓴다.
+ */
 @Repository
 @RequiredArgsConstructor
 public class ItemRepository {
 
     private final EntityManager em;
+    private final FetchPlanner fetchPlanner;
 
     public void save(Item item) {
         if (item.getId() == null) {
@@ -22,11 +30,23 @@ public class ItemRepository {
     }
 
     public Item findOne(Long id) {
-        return em.find(Item.class, id);
+        return fetchPlanner.find(Item.class, id);
+    }
+
+    /**
+     * 여러 상품을 id 순서대로 비관적 락(select ... for update)을 걸어 조회
+     * 항상 같은 순서로 락을 잡으므로 동시에 주문해도 서로 락을 기다리며 교착상태에 빠지지 않는다.
+     */
+    public List<Item> findAllForUpdate(Collection<Long> ids) {
+        return em.createQuery("select i from Item i where i.id in :ids order by i.id", Item.class)
+                .setParameter("ids", ids)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
     }
 
     public List<Item> findAll() {
-        return em.createQuery("select i from Item i", Item.class)
+        List<Item> items = em.createQuery("select i from Item i", Item.class)
                 .getResultList();
+        return fetchPlanner.initialize(items, Item.class);
     }
 }
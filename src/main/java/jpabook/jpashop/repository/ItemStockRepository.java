@@ -0,0 +1,213 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.domain.item.ItemStockShard;
+import jpabook.jpashop.domain.item.ItemStockStore;
+import jpabook.jpashop.exception.NotEnoughStockException;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Hibernate;
+import org.hibernate.query.NativeQuery;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.Query;
+import java.util.List;
+
+/**
+ * 조건부 update 로 재고를 원자적으로 증감한다.
+ *
+ * - 재고 확인과 차감을 update 한 문장으로 처리하므로(stock_quantity >= ? 조건) 동시에 주문해도 초과 판매/갱신 유실이 없다.
+ * - 변경된 row 가 0 이면 재고 부족이다.
+ * - row 락은 update 순간부터 커밋까지만 잡는다.(select ... for update 로 조회 시점부터 잡지 않는다.)
+ * - 벌크 update 는 영속성 컨텍스트를 거치지 않으므로, 이미 로딩된 엔티티는 refresh 해서 DB 값과 맞춘다.
+ *   (그대로 두면 이후 변경 감지로 예전 재고 값이 다시 써질 수 있다.)
+ *
+ * 샤딩된 상품(Item.stockShardCount > 0)
+ * - 재고가 item_stock_shard N개 row 에 나뉘어 있고, 스레드마다 다른 샤드부터 조건부 update 를 시도한다.(같은 row 락 대기 X)
+ * - 그 샤드가 부족하면 다음 샤드를 시도하고, 한 샤드로 부족하면(샤드들에 나뉘어 남은 경우) 샤드 전체에 락을 잡고 나눠서 뺀다.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ItemStockRepository implements ItemStockStore {
+
+    private static final String STOCK_QUERY_SPACE = "item_stock";
+
+    private final EntityManager em;
+
+    @Override
+    public void removeStock(Item item, int quantity) {
+        if (item.isStockSharded()) {
+            removeShardStock(item, quantity);
+            return;
+        }
+
+        int updated = itemStockUpdate(item,
+                "update item set stock_quantity = stock_quantity - :quantity" +
+                        " where item_id = :itemId and stock_quantity >= :quantity")
+                .setParameter("quantity", quantity)
+                .setParameter("itemId", item.getId())
+                .executeUpdate();
+
+        if (updated == 0) {
+            throw new NotEnoughStockException("need more stock");
+        }
+        refresh(item);
+    }
+
+    @Override
+    public void addStock(Item item, int quantity) {
+        if (item.isStockSharded()) {
+            em.createQuery(
+                            "update ItemStockShard s set s.quantity = s.quantity + :quantity" +
+                                    " where s.item.id = :itemId and s.shardNo = :shardNo")
+                    .setParameter("quantity", quantity)
+                    .setParameter("itemId", item.getId())
+                    .setParameter("shardNo", startShard(item))
+                    .executeUpdate();
+            refreshShards(item);
+            return;
+        }
+
+        itemStockUpdate(item, "update item set stock_quantity = stock_quantity + :quantity where item_id = :itemId")
+                .setParameter("quantity", quantity)
+                .setParameter("itemId", item.getId())
+                .executeUpdate();
+        refresh(item);
+    }
+
+    /**
+     * 상품 재고를 shardCount 개의 샤드로 나눈다.(이미 샤딩되어 있으면 다시 나눈다.)
+     * 상품 row 와 샤드 row 에 락을 잡고 진행한다.
+     */
+    public void shard(Item item, int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("샤드 수는 1 이상이어야 합니다.");
+        }
+        redistribute(item, shardCount, null);
+    }
+
+    /**
+     * 샤딩된 상품의 전체 재고를 quantity 로 바꾼다.(상품 수정 화면)
+     */
+    public void changeShardedStock(Item item, int quantity) {
+        redistribute(item, item.getStockShardCount(), quantity);
+    }
+
+    private void redistribute(Item item, int shardCount, Integer newTotal) {
+        em.refresh(item, LockModeType.PESSIMISTIC_WRITE);
+
+        int total = item.getStockQuantity();
+        if (item.isStockSharded()) {
+            List<ItemStockShard> shards = lockShards(item);
+            total = shards.stream().mapToInt(ItemStockShard::getQuantity).sum();
+            shards.forEach(em::detach);
+            em.createQuery("delete from ItemStockShard s where s.item.id = :itemId")
+                    .setParameter("itemId", item.getId())
+                    .executeUpdate();
+        }
+        if (newTotal != null) {
+            total = newTotal;
+        }
+
+        item.changeStockShardCount(shardCount);
+        for (int shardNo = 0; shardNo < shardCount; shardNo++) {
+            // 나머지는 앞쪽 샤드부터 1개씩
+            int quantity = total / shardCount + (shardNo < total % shardCount ? 1 : 0);
+            em.persist(new ItemStockShard(item, shardNo, quantity));
+        }
+        em.flush();
+        em.refresh(item);
+    }
+
+    private void removeShardStock(Item item, int quantity) {
+        int shardCount = item.getStockShardCount();
+        int start = startShard(item);
+
+        for (int i = 0; i < shardCount; i++) {
+            int updated = em.createQuery(
+                            "update ItemStockShard s set s.quantity = s.quantity - :quantity" +
+                                    " where s.item.id = :itemId and s.shardNo = :shardNo and s.quantity >= :quantity")
+                    .setParameter("quantity", quantity)
+                    .setParameter("itemId", item.getId())
+                    .setParameter("shardNo", (start + i) % shardCount)
+                    .executeUpdate();
+
+            if (updated == 1) {
+                refreshShards(item);
+                return;
+            }
+        }
+
+        // 한 샤드로는 부족 -> 샤드 전체에 (샤드 번호 순서로) 락을 잡고 나눠서 뺀다.
+        List<ItemStockShard> shards = lockShards(item);
+        int total = shards.stream().mapToInt(ItemStockShard::getQuantity).sum();
+        if (total < quantity) {
+            throw new NotEnoughStockException("need more stock");
+        }
+
+        int remaining = quantity;
+        for (ItemStockShard shard : shards) {
+            int taken = Math.min(shard.getQuantity(), remaining);
+            shard.removeStock(taken);
+            remaining -= taken;
+        }
+        em.flush();
+    }
+
+    private List<ItemStockShard> lockShards(Item item) {
+        List<ItemStockShard> shards = em.createQuery(
+                        "select s from ItemStockShard s where s.item.id = :itemId order by s.shardNo", ItemStockShard.class)
+                .setParameter("itemId", item.getId())
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+        shards.forEach(em::refresh); // 이미 영속성 컨텍스트에 있던 샤드는 예전 값일 수 있다.
+        return shards;
+    }
+
+    /**
+     * 스레드마다 고정된 샤드부터 시도한다.(같은 스레드는 같은 샤드, 다른 스레드끼리는 흩어짐)
+     */
+    private static int startShard(Item item) {
+        return (int) (Thread.currentThread().getId() % item.getStockShardCount());
+    }
+
+    /**
+     * 상품 재고 update
+     *
+     * jpql 벌크 update 는 2차 캐시의 Item 영역 전체를 비운다.(주문 한 건마다 상품 캐시가 통째로 날아감)
+     * native query 로 실행하되 Item 테이블과 상관없는 query space 를 지정해서 자동 무효화를 막고, 해당 상품만 지금 + 트랜잭션 종료 후에 evict 한다.
+     * query space 가 item 이 아니므로 자동 flush 도 되지 않는다. -> 같은 트랜잭션에서 저장/변경한 상품이 아직 DB에 없을 수 있으니 직접 flush 한다.
+     */
+    private Query itemStockUpdate(Item item, String sql) {
+        em.flush();
+
+        Cache cache = em.getEntityManagerFactory().getCache();
+        Long itemId = item.getId();
+        cache.evict(Item.class, itemId);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                cache.evict(Item.class, itemId);
+            }
+        });
+
+        NativeQuery<?> query = em.createNativeQuery(sql).unwrap(NativeQuery.class);
+        return query.addSynchronizedQuerySpace(STOCK_QUERY_SPACE);
+    }
+
+    private void refresh(Item item) {
+        if (em.contains(item)) {
+            em.refresh(item);
+        }
+    }
+
+    private void refreshShards(Item item) {
+        if (em.contains(item) && Hibernate.isInitialized(item.getStockShards())) {
+            item.getStockShards().forEach(em::refresh);
+        }
+    }
+}
@@ -2,8 +2,11 @@ package jpabook.jpashop.repository;
 
 import jpabook.jpashop.domain.Order;
 
+import jpabook.jpashop.fetchplan.FetchPlanner;
 import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryDto;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
 import javax.persistence.EntityManager;
@@ -12,28 +15,66 @@ import javax.persistence.criteria.*;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * 주문 엔티티 조회는 요청의 fetch plan(@FetchPlan)을 적용한다.(FetchPlanner)
+ * OSIV 를 껐으므로 plan 의 연관관계는 조회 메서드의 트랜잭션 안에서 다 가져온다.
+ */
 @Repository
 public class OrderRepository {
 
     private final EntityManager em;
+    private final OrderSearchQueryCache orderSearchQueryCache;
+    private final FetchPlanner fetchPlanner;
 
-    public OrderRepository(EntityManager em) {
+    private final int batchSize;
+
+    public OrderRepository(EntityManager em, OrderSearchQueryCache orderSearchQueryCache, FetchPlanner fetchPlanner,
+                           @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:100}") int batchSize) {
         this.em = em;
+        this.orderSearchQueryCache = orderSearchQueryCache;
+        this.fetchPlanner = fetchPlanner;
+        this.batchSize = batchSize;
     }
 
     public void save(Order order) {
         em.persist(order);
     }
 
+    /**
+     * 여러 주문 저장
+     * batchSize 건마다 flush(JDBC batch insert) 하고, 저장이 끝난 주문(+주문상품, 배송)은 영속성 컨텍스트에서 분리해서
+     * 주문 수가 많아도 영속성 컨텍스트가 커지지 않게 한다.(상품은 계속 영속 상태로 둔다.)
+     */
+    public void saveAll(List<Order> orders) {
+        List<Order> pending = new ArrayList<>(batchSize);
+        for (Order order : orders) {
+            em.persist(order);
+            pending.add(order);
+
+            if (pending.size() == batchSize) {
+                flushAndDetach(pending);
+            }
+        }
+        flushAndDetach(pending);
+    }
+
+    private void flushAndDetach(List<Order> pending) {
+        em.flush();
+        pending.forEach(em::detach); // cascade ALL -> orderItems, delivery 도 분리
+        pending.clear();
+    }
+
+    @Transactional(readOnly = true)
     public Order findOne(Long id) {
-        return em.find(Order.class, id);
+        return fetchPlanner.find(Order.class, id);
     }
 
+    @Transactional(readOnly = true)
     public List<Order> findAll() {
-        return em.createQuery("select o from Order o", Order.class)
-                .getResultList();
+        return fetch(em.createQuery("select o from Order o", Order.class));
     }
 
+    @Transactional(readOnly = true)
     public List<Order> findAllByString(OrderSearch orderSearch) {
 
             String jpql = "select o from Order o join o.member m";
@@ -71,12 +112,21 @@ public class OrderRepository {
             query = query.setParameter("name", orderSearch.getMemberName());
         }
 
-        return query.getResultList();
+        return fetch(query);
+    }
+
+    /**
+     * 쿼리 모양별로 미리 컴파일해둔 named query 재사용(OrderSearchQueryCache)
+     */
+    @Transactional(readOnly = true)
+    public List<Order> findAllBySearch(OrderSearch orderSearch) {
+        return fetch(orderSearchQueryCache.query(em, orderSearch));
     }
 
     /**
      * JPA Criteria
      */
+    @Transactional(readOnly = true)
     public List<Order> findAllByCriteria(OrderSearch orderSearch) {
         CriteriaBuilder cb = em.getCriteriaBuilder();
         CriteriaQuery<Order> cq = cb.createQuery(Order.class);
@@ -99,19 +149,22 @@ public class OrderRepository {
 
         cq.where(cb.and(criteria.toArray(new Predicate[criteria.size()])));
         TypedQuery<Order> query = em.createQuery(cq).setMaxResults(1000);
-        return query.getResultList();
+        return fetch(query);
     }
 
+    @Transactional(readOnly = true) //읽기 분리 시 replica
     public List<Order> findAllWithMemberDelivery() {
-        return em.createQuery(
+        List<Order> orders = em.createQuery(
                 "select o from Order o" +
                         " join fetch o.member m" +
                         " join fetch o.delivery d", Order.class)
                 .getResultList();
+        return fetchPlanner.initialize(orders, Order.class); // fetch join 한 것은 이미 초기화되어 있다.(추가 쿼리 X)
     }
 
+    @Transactional(readOnly = true) //읽기 분리 시 replica
     public List<Order> findAllWithMemberDelivery(int offset, int limit) {
-        return em.createQuery(
+        List<Order> orders = em.createQuery(
                         "select o from Order o" +
                                 " join fetch o.member m" +
                                 " join fetch o.delivery d", Order.class
@@ -119,6 +172,26 @@ public class OrderRepository {
                 .setFirstResult(offset)
                 .setMaxResults(limit)
                 .getResultList();
+        return fetchPlanner.initialize(orders, Order.class); // ToOne 은 이미 fetch join, 컬렉션만 plan 대로
+    }
+
+    /**
+     * 키셋(seek) 페이징 : offset 만큼 읽고 버리는 대신 pk 인덱스로 afterOrderId 다음 위치부터 바로 읽는다.
+     * 몇 번째 페이지든 첫 페이지와 비용이 같다.
+     */
+    @Transactional(readOnly = true)
+    public List<Order> findAllWithMemberDeliveryAfter(Long afterOrderId, int limit) {
+        List<Order> orders = em.createQuery(
+                        "select o from Order o" +
+                                " join fetch o.member m" +
+                                " join fetch o.delivery d" +
+                                " where o.id > :afterOrderId" +
+                                " order by o.id", Order.class
+                )
+                .setParameter("afterOrderId", afterOrderId == null ? 0L : afterOrderId)
+                .setMaxResults(limit)
+                .getResultList();
+        return fetchPlanner.initialize(orders, Order.class);
     }
 
     // 원하는 필드만 셀렉트 할 수 있도록 select절에 dto를 표현(객체가 아니라, 필드데이터를 넣는 생성자로 표현)
@@ -131,8 +204,9 @@ public class OrderRepository {
 //               .getResultList();
 //    }
 
+    @Transactional(readOnly = true) //읽기 분리 시 replica
     public List<Order> findAllWithItem() {
-        return em.createQuery(
+        List<Order> orders = em.createQuery(
                 "select distinct o from Order o" +  // distinct : 1row - 2row join이면 row는 2row가 됨 - 업무적인 판단에서 중복값을 바꿔주도록 한다.
                                                            // db의 distinct는 모든 값이 다 같아야하지않나? JPA가 distinct가 붙은 객체를 가지고 올 때, 같은 값이면 중복을 필터해준다.
                         " join fetch o.member m" +
@@ -140,8 +214,12 @@ public class OrderRepository {
                         " join fetch o.orderItems oi" +
                         " join fetch oi.item i", Order.class)
                 .getResultList();
+        return fetchPlanner.initialize(orders, Order.class);
     }
 
+    private List<Order> fetch(TypedQuery<Order> query) {
+        return fetchPlanner.initialize(fetchPlanner.apply(query, Order.class).getResultList(), Order.class);
+    }
 
 }
 
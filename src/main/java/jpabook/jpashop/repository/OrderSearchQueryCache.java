@@ -0,0 +1,115 @@
+package jpabook.jpashop.repository;
+
+import jpabook.jpashop.domain.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.TypedQuery;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * OrderSearch 쿼리 모양(shape) 캐시
+ *
+ * - 검색 조건은 (주문상태 유무) x (회원명 유무) 로 쿼리 모양이 4가지뿐이다.
+ * - 모양별로 jpql 을 한 번만 만들어 named query 로 등록(컴파일)해두고, 이후에는 이름으로 꺼내 파라미터만 바인딩한다.
+ *   findAllByString 처럼 매번 문자열을 이어붙이거나, findAllByCriteria 처럼 매번 Criteria 트리를 만들지 않는다.
+ * - 조건이 추가되면 Filter 에 하나 더 추가한다.(모양 수 = 2^조건 수)
+ */
+@Component
+public class OrderSearchQueryCache {
+
+    private static final int MAX_RESULTS = 1000;
+
+    private enum Filter {
+        STATUS(" o.status = :status"),
+        MEMBER_NAME(" m.name like :name");
+
+        private final String condition;
+
+        Filter(String condition) {
+            this.condition = condition;
+        }
+
+        int bit() {
+            return 1 << ordinal();
+        }
+    }
+
+    private final EntityManagerFactory emf;
+    private final ConcurrentMap<Integer, String> compiledShapes = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public OrderSearchQueryCache(EntityManagerFactory emf) {
+        this.emf = emf;
+    }
+
+    public TypedQuery<Order> query(EntityManager em, OrderSearch orderSearch) {
+        int shape = shapeOf(orderSearch);
+
+        String name = compiledShapes.get(shape);
+        if (name == null) {
+            misses.increment();
+            name = compiledShapes.computeIfAbsent(shape, s -> compile(em, s));
+        } else {
+            hits.increment();
+        }
+
+        TypedQuery<Order> query = em.createNamedQuery(name, Order.class)
+                .setMaxResults(MAX_RESULTS);
+
+        if (has(shape, Filter.STATUS)) {
+            query.setParameter("status", orderSearch.getOrderStatus());
+        }
+        if (has(shape, Filter.MEMBER_NAME)) {
+            query.setParameter("name", orderSearch.getMemberName());
+        }
+        return query;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public int getShapeCount() {
+        return compiledShapes.size();
+    }
+
+    private String compile(EntityManager em, int shape) {
+        StringBuilder jpql = new StringBuilder("select o from Order o join o.member m");
+        String separator = " where";
+        for (Filter filter : Filter.values()) {
+            if (has(shape, filter)) {
+                jpql.append(separator).append(filter.condition);
+                separator = " and";
+            }
+        }
+
+        String name = "Order.search." + shape;
+        emf.addNamedQuery(name, em.createQuery(jpql.toString(), Order.class));
+        return name;
+    }
+
+    private static int shapeOf(OrderSearch orderSearch) {
+        int shape = 0;
+        if (orderSearch.getOrderStatus() != null) {
+            shape |= Filter.STATUS.bit();
+        }
+        if (StringUtils.hasText(orderSearch.getMemberName())) {
+            shape |= Filter.MEMBER_NAME.bit();
+        }
+        return shape;
+    }
+
+    private static boolean has(int shape, Filter filter) {
+        return (shape & filter.bit()) != 0;
+    }
+}
@@ -0,0 +1,173 @@
+package jpabook.jpashop.repository;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * 부모 id 목록으로 1:N 컬렉션을 in 절로 조회할 때 쓰는 로더
+ *
+ * - in 절에 id를 전부 넣으면 DB/드라이버 파라미터 수 제한을 넘고, id 개수가 다를 때마다 다른 쿼리(실행계획)가 된다.
+ * - chunkSize 만큼씩 나누고, 각 chunk 는 2의 거듭제곱 크기로 채운다.(마지막 id 반복) -> 쿼리 모양이 log2(chunkSize) 가지로 고정된다.
+ * - parallelism > 1 이고 트랜잭션 밖에서 호출하면 chunk 들을 별도 스레드에서 각자의 readOnly 트랜잭션(=별도 커넥션)으로 동시에 조회한다.
+ *   chunk 마다 트랜잭션이 다르므로 같은 시점의 스냅샷은 아니다.(DTO 조회용 - 엔티티를 조회하면 준영속 상태로 돌아온다.)
+ *   루트 조회도 readOnly(...) 로 따로 끝내고 부르면 호출한 쪽은 커넥션을 쥐고 있지 않다.(OrderQueryRepository V5 참고)
+ * - 트랜잭션 안에서 호출하면 호출한 트랜잭션(커넥션)으로 차례대로 조회한다.
+ *   커넥션을 쥔 채 다른 커넥션을 기다리면, 동시 요청 수가 풀 크기만큼 되었을 때 서로 기다리다 풀이 고갈된다.
+ * - executor 큐가 가득 차면 호출한 스레드가 직접 조회하고, 전체가 timeout 을 넘으면 QueryTimeoutException
+ *   future 취소로는 실행 중인 쿼리가 멈추지 않으므로 chunk 트랜잭션에도 timeout 을 걸어 쿼리 timeout 으로 커넥션을 돌려받는다.
+ * - 별도 스레드에서 실행된 chunk 쿼리는 요청의 QueryContext(X-Query-Count)에 잡히지 않는다.
+ */
+@Component
+public class ParentIdChunkLoader implements DisposableBean {
+
+    private final int chunkSize;
+    private final Duration timeout;
+    private final TransactionTemplate chunkTx;
+    private final ThreadPoolTaskExecutor executor;
+
+    public ParentIdChunkLoader(PlatformTransactionManager transactionManager,
+                               @Value("${jpashop.in-loader.chunk-size:1024}") int chunkSize,
+                               @Value("${jpashop.in-loader.parallelism:1}") int parallelism,
+                               @Value("${jpashop.in-loader.timeout:10s}") Duration timeout) {
+        if (Integer.bitCount(chunkSize) != 1) {
+            throw new IllegalArgumentException("chunk-size는 2의 거듭제곱이어야 합니다. : " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+        this.timeout = timeout;
+
+        this.chunkTx = new TransactionTemplate(transactionManager);
+        this.chunkTx.setReadOnly(true);
+        this.chunkTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.chunkTx.setTimeout((int) Math.max(1, (timeout.toMillis() + 999) / 1000)); //쿼리 timeout 으로도 적용된다.
+
+        if (parallelism > 1) {
+            executor = new ThreadPoolTaskExecutor();
+            executor.setCorePoolSize(parallelism);
+            executor.setMaxPoolSize(parallelism);
+            executor.setQueueCapacity(parallelism * 4);
+            executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+            executor.setThreadNamePrefix("in-loader-");
+            executor.initialize();
+        } else {
+            executor = null;
+        }
+    }
+
+    /**
+     * parentIds 를 chunk 로 나눠 query 를 실행하고 결과를 합친다.
+     *
+     * @param query chunk(패딩된 id 목록)를 받아 "... where x.parent.id in :ids" 를 실행하는 함수
+     */
+    public <T> List<T> load(Collection<Long> parentIds, Function<List<Long>, List<T>> query) {
+        List<List<Long>> chunks = chunks(parentIds);
+        if (chunks.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return loadSequentially(chunks, query);
+        }
+        if (executor == null || chunks.size() == 1) {
+            return chunkTx.execute(status -> loadSequentially(chunks, query));
+        }
+
+        List<CompletableFuture<List<T>>> futures = chunks.stream()
+                .map(chunk -> CompletableFuture.supplyAsync(() -> chunkTx.execute(status -> query.apply(chunk)), executor))
+                .collect(Collectors.toList());
+
+        long deadlineNanos = System.nanoTime() + timeout.toNanos();
+        List<T> result = new ArrayList<>();
+        try {
+            for (CompletableFuture<List<T>> future : futures) {
+                result.addAll(future.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS));
+            }
+        } catch (TimeoutException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw new QueryTimeoutException("in 절 chunk 조회가 " + timeout.toMillis() + "ms 안에 끝나지 않았습니다.");
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("in 절 chunk 조회가 중단되었습니다.", e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("in 절 chunk 조회 실패", e.getCause());
+        }
+        return result;
+    }
+
+    /**
+     * 루트 조회처럼 load 전에 필요한 조회를 별도의 readOnly 트랜잭션으로 실행하고 커넥션을 돌려준다.
+     */
+    public <T> T readOnly(Supplier<T> query) {
+        return chunkTx.execute(status -> query.get());
+    }
+
+    /**
+     * load 결과를 부모 id 별로 묶는다.
+     */
+    public <T> Map<Long, List<T>> loadGrouped(Collection<Long> parentIds, Function<List<Long>, List<T>> query,
+                                              Function<T, Long> parentIdOf) {
+        return load(parentIds, query).stream()
+                .collect(Collectors.groupingBy(parentIdOf));
+    }
+
+    private static <T> List<T> loadSequentially(List<List<Long>> chunks, Function<List<Long>, List<T>> query) {
+        List<T> result = new ArrayList<>();
+        for (List<Long> chunk : chunks) {
+            result.addAll(query.apply(chunk));
+        }
+        return result;
+    }
+
+    List<List<Long>> chunks(Collection<Long> parentIds) {
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(parentIds)); // 중복 제거
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            chunks.add(pad(ids.subList(from, Math.min(from + chunkSize, ids.size()))));
+        }
+        return chunks;
+    }
+
+    static List<Long> pad(List<Long> chunk) {
+        int padded = Integer.highestOneBit(chunk.size());
+        if (padded < chunk.size()) {
+            padded <<= 1;
+        }
+
+        List<Long> result = new ArrayList<>(padded);
+        result.addAll(chunk);
+        Long last = chunk.get(chunk.size() - 1);
+        while (result.size() < padded) {
+            result.add(last);
+        }
+        return result;
+    }
+
+    @Override
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package jpabook.jpashop.repository.order.query;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * 플랫 row(OrderFlatDto)를 주문(OrderQueryDto) 단위로 묶어서 하나씩 돌려준다.
+ *
+ * - row가 주문 id 순으로 정렬되어 있다는 전제로, 주문 id가 바뀌는 지점에서 끊는다.(groupingBy 처럼 전체를 Map에 담지 않는다.)
+ * - row를 한 번만 훑고, 다음 주문의 첫 row 하나만 미리 읽어둔다.
+ */
+public class OrderFlatIterator implements Iterator<OrderQueryDto> {
+
+    private final Iterator<OrderFlatDto> rows;
+    private OrderFlatDto next;
+
+    public OrderFlatIterator(Iterator<OrderFlatDto> rows) {
+        this.rows = rows;
+        this.next = rows.hasNext() ? rows.next() : null;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return next != null;
+    }
+
+    @Override
+    public OrderQueryDto next() {
+        if (next == null) {
+            throw new NoSuchElementException();
+        }
+
+        OrderFlatDto first = next;
+        List<OrderItemQueryDto> orderItems = new ArrayList<>();
+        OrderQueryDto order = new OrderQueryDto(first.getOrderId(), first.getName(), first.getOrderDate(),
+                first.getOrderStatus(), first.getAddress(), orderItems);
+
+        OrderFlatDto row = first;
+        while (row != null && row.getOrderId().equals(first.getOrderId())) {
+            orderItems.add(new OrderItemQueryDto(row.getOrderId(), row.getItemName(), row.getOrderPrice(), row.getCount()));
+            row = rows.hasNext() ? rows.next() : null;
+        }
+        next = row;
+
+        return order;
+    }
+}
@@ -0,0 +1,20 @@
+package jpabook.jpashop.repository.order.query;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * 키셋 페이지 1개 : 주문 목록 + 다음 페이지 유무
+ */
+@Getter
+public class OrderQueryPage {
+
+    private final List<OrderQueryDto> orders;
+    private final boolean hasNext;
+
+    public OrderQueryPage(List<OrderQueryDto> orders, boolean hasNext) {
+        this.orders = orders;
+        this.hasNext = hasNext;
+    }
+}
@@ -1,19 +1,30 @@
 package jpabook.jpashop.repository.order.query;
 
 import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.repository.ParentIdChunkLoader;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.jpa.QueryHints;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+/**
+ * 조회 전용 - 읽기 분리(ReplicaRoutingDataSource)를 켜면 replica 에서 조회한다.
+ */
 @Repository
+@Transactional(readOnly = true)
 @RequiredArgsConstructor
 public class OrderQueryRepository {
 
     private final EntityManager em;
+    private final ParentIdChunkLoader parentIdChunkLoader;
 
 
     /**
@@ -65,35 +76,91 @@ public class OrderQueryRepository {
         .getResultList();
     }
 
+    /**
+     * 컬렉션은 in 으로 한번에(ParentIdChunkLoader)
+     *
+     * 트랜잭션 없이 실행한다.(NOT_SUPPORTED) 루트는 readOnly 트랜잭션으로 조회하고 끝낸 뒤 컬렉션을 조회하므로
+     * in-loader.parallelism > 1 이면 chunk 들이 각자의 커넥션으로 동시에 조회된다.(호출한 쪽은 커넥션을 쥐고 기다리지 않는다.)
+     * 호출한 쪽의 트랜잭션도 잠시 중단되므로 그 트랜잭션에서 아직 커밋하지 않은 주문은 보이지 않는다.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public List<OrderQueryDto> findAllByDto_optimization() {
-        List<OrderQueryDto> result = findOrders();
+        List<OrderQueryDto> result = parentIdChunkLoader.readOnly(this::findOrders);
+
+        setOrderItems(result);
+
+        return result;
+    }
+
+    /**
+     * V4 키셋 페이징 : afterOrderId 다음 주문부터 limit 개
+     */
+    public List<OrderQueryDto> findOrderQueryDtos(Long afterOrderId, int limit) {
+        List<OrderQueryDto> result = findOrders(afterOrderId, limit);
+
+        result.forEach(o -> o.setOrderItems(finOrderItems(o.getOrderId())));
+        return result;
+    }
+
+    /**
+     * V5 키셋 페이징 : 루트는 pk 인덱스로 seek, 컬렉션은 해당 페이지의 id로만 in 조회
+     * (트랜잭션은 findAllByDto_optimization() 과 같다.)
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<OrderQueryDto> findAllByDto_optimization(Long afterOrderId, int limit) {
+        List<OrderQueryDto> result = parentIdChunkLoader.readOnly(() -> findOrders(afterOrderId, limit));
+
+        setOrderItems(result);
 
+        return result;
+    }
+
+    /**
+     * V5 키셋 페이징 - 커서 API 용
+     * 다음 페이지가 있는지 보려고 주문은 size + 1 개 조회하지만, 남는 1개는 컬렉션(in)을 조회하기 전에 뺀다.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public OrderQueryPage findPageByDto_optimization(Long afterOrderId, int size) {
+        List<OrderQueryDto> orders = parentIdChunkLoader.readOnly(() -> findOrders(afterOrderId, size + 1));
+
+        boolean hasNext = orders.size() > size;
+        List<OrderQueryDto> page = hasNext ? new ArrayList<>(orders.subList(0, size)) : orders;
+        setOrderItems(page);
+
+        return new OrderQueryPage(page, hasNext);
+    }
+
+    private List<OrderQueryDto> findOrders(Long afterOrderId, int limit) {
+        return em.createQuery(
+                        "select new jpabook.jpashop.repository.order.query.OrderQueryDto(o.id, m.name, o.orderDate, o.status, d.address)" +
+                                " from Order o" +
+                                " join o.member m" +
+                                " join o.delivery d" +
+                                " where o.id > :afterOrderId" +
+                                " order by o.id", OrderQueryDto.class)
+                .setParameter("afterOrderId", afterOrderId == null ? 0L : afterOrderId)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    private void setOrderItems(List<OrderQueryDto> result) {
         //orderId 결과가 n개가 있을거다.
         List<Long> orderIds = result.stream()
                                 .map(o -> o.getOrderId())
                                 .collect(Collectors.toList());
 
-        List<OrderItemQueryDto> orderItems = em.createQuery(
-                "select new jpabook.jpashop.repository.order.query.OrderItemQueryDto(oi.order.id, i.name, oi.orderPrice, oi.count)" +
-                        " from OrderItem oi" +
-                        " join oi.item i" +
-                        " where oi.order.id in :orderIds",OrderItemQueryDto.class) // '= :orderId'이 'in :orderIds'로 바뀌었다.
-        .setParameter("orderIds", orderIds)
-        .getResultList();
-
         // orderItemQueryDto를 OrderId로 그룹바이하여 map으로 저장
-        Map<Long, List<OrderItemQueryDto>> orderItemMap  = orderItems.stream()
-                .collect(Collectors.groupingBy((orderItemQueryDto -> orderItemQueryDto.getOrderId())));
+        // id가 많으면 chunk로 나누어 in 조회한다.(ParentIdChunkLoader)
+        Map<Long, List<OrderItemQueryDto>> orderItemMap = parentIdChunkLoader.loadGrouped(
+                orderIds, this::findOrderItems, OrderItemQueryDto::getOrderId);
 
         // 메모리상에서 result에 값을 세팅
         result.forEach(o -> o.setOrderItems(orderItemMap.get(o.getOrderId())));
-
-        return result;
     }
 
     public List<OrderFlatDto> findAllByDto_flat() {
         return em.createQuery(
-                        "select new jpabook.jpashop.repository.order.query.OrderItemQueryDto(oi.order.id, i.name, oi.orderPrice, oi.count)" +
+                        "select new jpabook.jpashop.repository.order.query.OrderFlatDto(o.id, m.name, o.orderDate, o.status, d.address, i.name, oi.orderPrice, oi.count)" +
                          " from Order o" +
                         " join o.member m" +
                         " join o.delivery d" +
@@ -102,6 +169,76 @@ public class OrderQueryRepository {
                 .getResultList();
     }
 
+    private List<OrderItemQueryDto> findOrderItems(List<Long> orderIds) {
+        return em.createQuery(
+                "select new jpabook.jpashop.repository.order.query.OrderItemQueryDto(oi.order.id, i.name, oi.orderPrice, oi.count)" +
+                        " from OrderItem oi" +
+                        " join oi.item i" +
+                        " where oi.order.id in :orderIds",OrderItemQueryDto.class) // '= :orderId'이 'in :orderIds'로 바뀌었다.
+        .setParameter("orderIds", orderIds)
+        .getResultList();
+    }
+
+    /**
+     * V6 플랫 조회 + 루트(주문) 기준 페이징
+     *
+     * - row 단위 setMaxResults 로는 주문 중간에서 잘린다.
+     * - 쿼리 1 : 커서 다음 limit 번째 주문 id 를 pk 인덱스로 찾는다.(페이지의 마지막 주문)
+     * - 쿼리 2 : 주문 id 가 (afterOrderId, 마지막 주문 id] 인 주문만 주문, 회원, 배송, 주문상품, 상품을 한번에 조인한다.
+     *   -> DB 가 만들고 정렬하는 row 가 페이지 크기만큼이다.(남은 주문 전체를 조인/정렬하지 않는다.)
+     * - 주문 id 가 바뀌는 지점에서 끊어 묶으므로 groupingBy(Map) 없이 한 번만 훑는다.
+     */
+    public List<OrderQueryDto> findAllByDto_flat(Long afterOrderId, int limit) {
+        Long after = afterOrderId == null ? 0L : afterOrderId;
+        List<Long> lastOrderId = em.createQuery(
+                        "select o.id from Order o where o.id > :afterOrderId order by o.id", Long.class)
+                .setParameter("afterOrderId", after)
+                .setFirstResult(limit - 1)
+                .setMaxResults(1)
+                .getResultList();
+
+        List<OrderFlatDto> rows = em.createQuery(
+                        "select new jpabook.jpashop.repository.order.query.OrderFlatDto(o.id, m.name, o.orderDate, o.status, d.address, i.name, oi.orderPrice, oi.count)" +
+                                " from Order o" +
+                                " join o.member m" +
+                                " join o.delivery d" +
+                                " join o.orderItems oi" +
+                                " join oi.item i" +
+                                " where o.id > :afterOrderId and o.id <= :lastOrderId" +
+                                " order by o.id, oi.id", OrderFlatDto.class)
+                .setParameter("afterOrderId", after)
+                .setParameter("lastOrderId", lastOrderId.isEmpty() ? Long.MAX_VALUE : lastOrderId.get(0)) //limit 개가 안 남았으면 끝까지
+                .getResultList();
+
+        List<OrderQueryDto> result = new ArrayList<>(limit);
+        new OrderFlatIterator(rows.iterator()).forEachRemaining(result::add);
+        return result;
+    }
+
+    /**
+     * 전체 주문 내보내기용 스트리밍 조회
+     *
+     * - getResultStream() 은 hibernate ScrollableResults 위에서 동작해서 결과를 fetchSize 만큼씩 JDBC 에서 가져온다.
+     * - 엔티티가 아니라 DTO 로 조회하므로 영속성 컨텍스트에 아무것도 쌓이지 않는다.(주문 수와 상관없이 메모리 일정)
+     * - 주문 id 순으로 정렬되어 있으므로 같은 주문의 row 는 연속해서 나온다.
+     * - 반드시 트랜잭션 안에서 사용하고 다 쓰면 close 한다.(중간에 close 하면 나머지 row는 읽지 않는다.)
+     *   (호출하는 쪽의 트랜잭션 - 트랜잭션 없이 호출하면 이 메서드의 트랜잭션은 리턴하면서 끝나버린다.)
+     */
+    public Stream<OrderFlatDto> streamAllByDto_flat(Long afterOrderId, int fetchSize) {
+        return em.createQuery(
+                        "select new jpabook.jpashop.repository.order.query.OrderFlatDto(o.id, m.name, o.orderDate, o.status, d.address, i.name, oi.orderPrice, oi.count)" +
+                                " from Order o" +
+                                " join o.member m" +
+                                " join o.delivery d" +
+                                " join o.orderItems oi" +
+                                " join oi.item i" +
+                                " where o.id > :afterOrderId" +
+                                " order by o.id, oi.id", OrderFlatDto.class)
+                .setParameter("afterOrderId", afterOrderId == null ? 0L : afterOrderId)
+                .setHint(QueryHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(QueryHints.HINT_READONLY, true)
+                .getResultStream();
+    }
 
 
 //    /**
@@ -0,0 +1,158 @@
+package jpabook.jpashop.repository.order.reactive;
+
+import io.r2dbc.spi.Row;
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.reactive.ReactiveDatabase;
+import jpabook.jpashop.repository.order.query.OrderItemQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * R2DBC 조회 전용 (OrderSimpleQueryRepository, OrderQueryRepository 의 논블로킹 버전)
+ *
+ * - 결과를 List 로 모으지 않고 row 가 나오는 대로 Flux 로 흘려보낸다.(구독자가 요청한 만큼만 읽는다 - backpressure)
+ * - 주문 id 순으로 정렬해서 afterOrderId 다음부터 읽는다.(V4/V5 키셋 페이징과 같은 기준)
+ * - 쓰기는 하지 않는다.(쓰기와 엔티티는 JPA)
+ */
+@Repository
+public class OrderReactiveQueryRepository {
+
+    private static final String SELECT_ORDERS =
+            "select o.order_id, m.name, o.order_date, o.status, d.city, d.street, d.zipcode" +
+                    " from orders o" +
+                    " join member m on m.member_id = o.member_id" +
+                    " join delivery d on d.delivery_id = o.delivery_id" +
+                    " where o.order_id > :afterOrderId" +
+                    " order by o.order_id";
+
+    private final DatabaseClient client;
+    private final Scheduler dbScheduler;
+    private final int chunkSize;
+    private final Flux<Long> latestOrderId;
+
+    public OrderReactiveQueryRepository(ReactiveDatabase database,
+                                        @Value("${jpashop.in-loader.chunk-size:1024}") int chunkSize,
+                                        @Value("${jpashop.reactive.poll-interval:1s}") Duration pollInterval) {
+        this.client = database.getClient();
+        this.dbScheduler = database.getDbScheduler();
+        this.chunkSize = chunkSize;
+
+        // 대기 중인 요청이 몇 개든 마지막 주문 id 조회는 주기마다 1번 (대기자가 없으면 멈춘다.)
+        this.latestOrderId = Flux.interval(Duration.ZERO, pollInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> client.sql("select coalesce(max(order_id), 0) from orders")
+                        .map(row -> row.get(0, Long.class))
+                        .one()
+                        .subscribeOn(dbScheduler), 1)
+                .distinctUntilChanged()
+                .replay(1)
+                .refCount();
+    }
+
+    /**
+     * OrderSimpleQueryRepository.findOrderDtos
+     */
+    public Flux<OrderSimpleQueryDto> findOrderDtos(Long afterOrderId) {
+        return client.sql(SELECT_ORDERS)
+                .bind("afterOrderId", afterOrderId == null ? 0L : afterOrderId)
+                .map(OrderReactiveQueryRepository::toSimpleDto)
+                .all()
+                .subscribeOn(dbScheduler);
+    }
+
+    /**
+     * afterOrderId 다음 주문이 생길 때까지 기다렸다가 최대 limit 개 (롱 폴링)
+     * timeout 안에 새 주문이 없으면 빈 리스트
+     *
+     * 기다리는 동안은 스레드도 커넥션도 쓰지 않는다.
+     */
+    public Mono<List<OrderSimpleQueryDto>> waitForOrderDtos(Long afterOrderId, int limit, Duration timeout) {
+        long after = afterOrderId == null ? 0L : afterOrderId;
+        return latestOrderId
+                .filter(latest -> latest > after)
+                .next()
+                .timeout(timeout, Mono.empty())
+                .flatMap(latest -> findOrderDtos(after).take(limit).collectList())
+                .defaultIfEmpty(List.of());
+    }
+
+    /**
+     * OrderQueryRepository.findAllByDto_optimization
+     *
+     * 주문을 chunkSize 개씩 모아서 주문상품을 in 으로 1번 조회한 뒤 채워서 내보낸다.
+     * 주문 수와 상관없이 메모리에는 chunk 하나만 있다.
+     */
+    public Flux<OrderQueryDto> findAllByDto_optimization(Long afterOrderId) {
+        return client.sql(SELECT_ORDERS)
+                .bind("afterOrderId", afterOrderId == null ? 0L : afterOrderId)
+                .map(OrderReactiveQueryRepository::toQueryDto)
+                .all()
+                .subscribeOn(dbScheduler)
+                .buffer(chunkSize)
+                .concatMap(this::setOrderItems, 1);
+    }
+
+    private Flux<OrderQueryDto> setOrderItems(List<OrderQueryDto> orders) {
+        List<Long> orderIds = orders.stream()
+                .map(OrderQueryDto::getOrderId)
+                .collect(Collectors.toList());
+
+        return findOrderItems(orderIds)
+                .collect(Collectors.groupingBy(OrderItemQueryDto::getOrderId))
+                .flatMapIterable(orderItemMap -> {
+                    orders.forEach(o -> o.setOrderItems(orderItemMap.get(o.getOrderId())));
+                    return orders;
+                });
+    }
+
+    private Flux<OrderItemQueryDto> findOrderItems(List<Long> orderIds) {
+        return client.sql(
+                        "select oi.order_id, i.name, oi.order_price, oi.count" +
+                                " from order_item oi" +
+                                " join item i on i.item_id = oi.item_id" +
+                                " where oi.order_id in (:orderIds)")
+                .bind("orderIds", orderIds)
+                .map(row -> new OrderItemQueryDto(
+                        row.get("order_id", Long.class),
+                        row.get("name", String.class),
+                        row.get("order_price", Integer.class),
+                        row.get("count", Integer.class)))
+                .all()
+                .subscribeOn(dbScheduler);
+    }
+
+    private static OrderSimpleQueryDto toSimpleDto(Row row) {
+        return new OrderSimpleQueryDto(
+                row.get("order_id", Long.class),
+                row.get("name", String.class),
+                row.get("order_date", LocalDateTime.class),
+                OrderStatus.valueOf(row.get("status", String.class)),
+                toAddress(row));
+    }
+
+    private static OrderQueryDto toQueryDto(Row row) {
+        return new OrderQueryDto(
+                row.get("order_id", Long.class),
+                row.get("name", String.class),
+                row.get("order_date", LocalDateTime.class),
+                OrderStatus.valueOf(row.get("status", String.class)),
+                toAddress(row));
+    }
+
+    private static Address toAddress(Row row) {
+        return new Address(row.get("city", String.class), row.get("street", String.class), row.get("zipcode", String.class));
+    }
+}
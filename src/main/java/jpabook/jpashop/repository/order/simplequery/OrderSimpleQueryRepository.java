@@ -2,11 +2,16 @@ package jpabook.jpashop.repository.order.simplequery;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
 import java.util.List;
 
+/**
+ * 조회 전용 - 읽기 분리(ReplicaRoutingDataSource)를 켜면 replica 에서 조회한다.
+ */
 @Repository
+@Transactional(readOnly = true)
 @RequiredArgsConstructor
 public class OrderSimpleQueryRepository {
 
@@ -0,0 +1,123 @@
+package jpabook.jpashop.repository.order.summary;
+
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.OrderSummary;
+import jpabook.jpashop.repository.OrderSearch;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 주문 요약(order_summary) - 쓰기는 호출한 서비스의 트랜잭션에 같이 묶인다.
+ * 조회는 테이블 하나만 읽는다.(조인 없음, 주문 id 순 키셋 페이징)
+ */
+@Repository
+public class OrderSummaryRepository {
+
+    private final EntityManager em;
+    private final int batchSize;
+
+    public OrderSummaryRepository(EntityManager em,
+                                  @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:100}") int batchSize) {
+        this.em = em;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * 새 주문 (주문 id 가 정해진 뒤 = orderRepository.save 다음에 호출)
+     */
+    public void save(Order order) {
+        em.persist(OrderSummary.from(order));
+    }
+
+    /**
+     * 여러 주문 (OrderRepository.saveAll 다음에 호출)
+     * OrderRepository.saveAll 처럼 batchSize 건마다 flush 하고 분리한다.
+     */
+    public void saveAll(List<Order> orders) {
+        List<OrderSummary> pending = new ArrayList<>(batchSize);
+        for (Order order : orders) {
+            OrderSummary summary = OrderSummary.from(order);
+            em.persist(summary);
+            pending.add(summary);
+
+            if (pending.size() == batchSize) {
+                flushAndDetach(pending);
+            }
+        }
+        flushAndDetach(pending);
+    }
+
+    private void flushAndDetach(List<OrderSummary> pending) {
+        em.flush();
+        pending.forEach(em::detach);
+        pending.clear();
+    }
+
+    /**
+     * 주문 상태 반영 - 요약이 없는 주문(요약 도입 전 주문)은 새로 만든다.
+     */
+    public void updateStatus(Order order) {
+        OrderSummary summary = em.find(OrderSummary.class, order.getId());
+        if (summary == null) {
+            save(order);
+            return;
+        }
+        summary.changeStatus(order.getStatus());
+    }
+
+    public int updateMemberName(Long memberId, String name) {
+        return em.createQuery("update OrderSummary s set s.memberName = :name where s.memberId = :memberId")
+                .setParameter("name", name)
+                .setParameter("memberId", memberId)
+                .executeUpdate();
+    }
+
+    public int updateItemName(Long itemId, String name) {
+        return em.createQuery("update OrderSummary s set s.itemName = :name where s.itemId = :itemId")
+                .setParameter("name", name)
+                .setParameter("itemId", itemId)
+                .executeUpdate();
+    }
+
+    /**
+     * afterOrderId 다음부터 주문 id 순으로 limit 개 (afterOrderId 가 null 이면 처음부터)
+     */
+    @Transactional(readOnly = true)
+    public List<OrderSummaryDto> findAll(OrderSearch orderSearch, Long afterOrderId, int limit) {
+        StringBuilder jpql = new StringBuilder(
+                "select new jpabook.jpashop.repository.order.summary.OrderSummaryDto(" +
+                        "s.orderId, s.memberName, s.orderDate, s.status, s.address," +
+                        " s.itemCount, s.totalPrice, s.itemName, s.itemPrice, s.itemQuantity)" +
+                        " from OrderSummary s where 1 = 1");
+        if (afterOrderId != null) {
+            jpql.append(" and s.orderId > :afterOrderId");
+        }
+        if (orderSearch.getOrderStatus() != null) {
+            jpql.append(" and s.status = :status");
+        }
+        if (StringUtils.hasText(orderSearch.getMemberName())) {
+            jpql.append(" and s.memberName like :name");
+        }
+        jpql.append(" order by s.orderId");
+
+        TypedQuery<OrderSummaryDto> query = em.createQuery(jpql.toString(), OrderSummaryDto.class)
+                .setMaxResults(limit);
+        if (afterOrderId != null) {
+            query.setParameter("afterOrderId", afterOrderId);
+        }
+        if (orderSearch.getOrderStatus() != null) {
+            query.setParameter("status", orderSearch.getOrderStatus());
+        }
+        if (StringUtils.hasText(orderSearch.getMemberName())) {
+            query.setParameter("name", orderSearch.getMemberName());
+        }
+        return query.getResultList();
+    }
+}
@@ -0,0 +1,411 @@
+package jpabook.jpashop.seed;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 대량 데이터 적재 (회원, 상품, 주문/배송/주문상품, 주문 요약)
+ *
+ * - 영속성 컨텍스트를 거치지 않고 JDBC 로 바로 넣는다.(BATCH : batch insert, CSV : H2 CSVREAD)
+ * - id 범위를 chunkSize 개씩 나눠서 parallelism 개의 스레드가 각자 커넥션 1개로 만들고 넣는다.(chunk 마다 커밋)
+ * - 난수는 row 마다 (seed, id) 로 만들어서 스레드 순서, chunk 크기와 상관없이 같은 seed 면 같은 데이터가 나온다.
+ * - 시퀀스로 생성되는 id(InitDb, 서비스 호출)와 겹치지 않도록 ID_BASE 부터 id를 직접 부여한다.
+ *   주문상품 id = ID_BASE + 주문 번호 * maxItemsPerOrder + 순번
+ */
+@Slf4j
+public class DataSeeder {
+
+    public static final long ID_BASE = 1_000_000_000L;
+    private static final int BATCH_SIZE = 1000;
+
+    private static final Table MEMBER = new Table("member", "member_id", "name", "city", "street", "zipcode");
+    private static final Table ITEM = new Table("item", "dtype", "item_id", "name", "price", "stock_quantity", "stock_shard_count", "author", "isbn");
+    private static final Table DELIVERY = new Table("delivery", "delivery_id", "city", "street", "zipcode", "status");
+    private static final Table ORDERS = new Table("orders", "order_id", "member_id", "delivery_id", "order_date", "status");
+    private static final Table ORDER_ITEM = new Table("order_item", "order_item_id", "order_id", "item_id", "order_price", "count");
+    private static final Table ORDER_SUMMARY = new Table("order_summary", "order_id", "member_id", "member_name", "city", "street", "zipcode",
+            "status", "order_date", "item_count", "total_price", "item_id", "item_name", "item_price", "item_quantity");
+
+    private final DataSource dataSource;
+
+    public DataSeeder(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * 이미 적재한 데이터가 있는지 (ID_BASE 이상의 회원)
+     */
+    public boolean isSeeded() {
+        Integer count = new JdbcTemplate(dataSource).queryForObject(
+                "select count(*) from member where member_id >= ?", Integer.class, ID_BASE);
+        return count != null && count > 0;
+    }
+
+    public SeedResult seed(SeedProperties properties) {
+        validate(properties);
+        long start = System.nanoTime();
+
+        ExecutorService executor = Executors.newFixedThreadPool(properties.getParallelism(), new CustomizableThreadFactory("seeder-"));
+        Path csvDir = properties.getMode() == SeedProperties.Mode.CSV ? createCsvDir() : null;
+        try {
+            // fk 순서 : 회원, 상품 -> (배송 -> 주문 -> 주문상품)
+            long members = run(executor, properties, properties.getMembers(), csvDir, this::writeMembers);
+            long items = run(executor, properties, properties.getItems(), csvDir, this::writeItems);
+            long orderItems = run(executor, properties, properties.getOrders(), csvDir, this::writeOrders);
+
+            SeedResult result = new SeedResult(members, items, properties.getOrders(), orderItems,
+                    Duration.ofNanos(System.nanoTime() - start));
+            log.info("데이터 적재 - 회원 {}, 상품 {}, 주문 {}, 주문상품 {} ({}ms, {}, 스레드 {})",
+                    result.getMembers(), result.getItems(), result.getOrders(), result.getOrderItems(),
+                    result.getElapsed().toMillis(), properties.getMode(), properties.getParallelism());
+            return result;
+        } finally {
+            executor.shutdownNow();
+            if (csvDir != null) {
+                csvDir.toFile().delete();
+            }
+        }
+    }
+
+    private long run(ExecutorService executor, SeedProperties properties, int count, Path csvDir, ChunkWriter writer) {
+        List<Future<Long>> futures = new ArrayList<>();
+        for (int from = 0; from < count; from += properties.getChunkSize()) {
+            int chunkFrom = from;
+            int chunkTo = Math.min(count, from + properties.getChunkSize());
+            futures.add(executor.submit(() -> writeChunk(new Chunk(properties, chunkFrom, chunkTo, csvDir), writer)));
+        }
+
+        long rows = 0;
+        try {
+            for (Future<Long> future : futures) {
+                rows += future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("데이터 적재가 중단되었습니다.", e);
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw new IllegalStateException("데이터 적재 실패", e.getCause());
+        }
+        return rows;
+    }
+
+    private long writeChunk(Chunk chunk, ChunkWriter writer) throws Exception {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            chunk.connection = connection;
+            try {
+                long rows = writer.write(chunk);
+                chunk.finish();
+                connection.commit();
+                return rows;
+            } catch (Exception e) {
+                chunk.discard();
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+
+    private long writeMembers(Chunk chunk) throws Exception {
+        Sink members = chunk.sink(MEMBER);
+        for (int i = chunk.from; i < chunk.to; i++) {
+            members.add(ID_BASE + i, "member" + i, "city" + (i % 100), "street" + i, String.valueOf(10000 + i % 90000));
+            chunk.flushEvery(i);
+        }
+        return chunk.to - chunk.from;
+    }
+
+    private long writeItems(Chunk chunk) throws Exception {
+        SeedProperties properties = chunk.properties;
+        Sink items = chunk.sink(ITEM);
+        for (int i = chunk.from; i < chunk.to; i++) {
+            items.add("B", ID_BASE + i, "item" + i, itemPrice(properties.getSeed(), i), properties.getItemStock(), 0, "author" + i, "isbn" + i);
+            chunk.flushEvery(i);
+        }
+        return chunk.to - chunk.from;
+    }
+
+    private long writeOrders(Chunk chunk) throws Exception {
+        SeedProperties properties = chunk.properties;
+        Sink deliveries = chunk.sink(DELIVERY);
+        Sink orders = chunk.sink(ORDERS);
+        Sink orderItems = chunk.sink(ORDER_ITEM);
+        Sink summaries = chunk.sink(ORDER_SUMMARY);
+
+        int itemRange = properties.getMaxItemsPerOrder() - properties.getMinItemsPerOrder() + 1;
+        int hotItems = Math.max(1, (int) (properties.getItems() * properties.getHotItemRatio()));
+        LocalDateTime dateFrom = properties.getOrderDateFrom().atStartOfDay();
+        long spreadSeconds = properties.getOrderDateSpread().getSeconds();
+
+        long rows = 0;
+        for (int i = chunk.from; i < chunk.to; i++) {
+            SplittableRandom random = new SplittableRandom(mix(properties.getSeed() ^ mix(i)));
+            long orderId = ID_BASE + i;
+            int member = random.nextInt(properties.getMembers());
+
+            String city = "city" + (member % 100);
+            String street = "street" + member;
+            String zipcode = String.valueOf(10000 + member % 90000);
+            Timestamp orderDate = Timestamp.valueOf(dateFrom.plusSeconds(spreadSeconds * i / properties.getOrders()));
+
+            deliveries.add(orderId, city, street, zipcode, "READY");
+            orders.add(orderId, ID_BASE + member, orderId, orderDate, "ORDER");
+
+            int count = properties.getMinItemsPerOrder() + random.nextInt(itemRange);
+            int totalPrice = 0;
+            int firstItem = 0;
+            int firstQuantity = 0;
+            for (int j = 0; j < count; j++) {
+                int item = random.nextDouble() < properties.getHotOrderRatio()
+                        ? random.nextInt(hotItems)
+                        : random.nextInt(properties.getItems());
+                int quantity = 1 + random.nextInt(5);
+                orderItems.add(ID_BASE + (long) i * properties.getMaxItemsPerOrder() + j, orderId, ID_BASE + item,
+                        itemPrice(properties.getSeed(), item), quantity);
+
+                totalPrice += itemPrice(properties.getSeed(), item) * quantity;
+                if (j == 0) {
+                    firstItem = item;
+                    firstQuantity = quantity;
+                }
+            }
+            summaries.add(orderId, ID_BASE + member, "member" + member, city, street, zipcode, "ORDER", orderDate,
+                    count, totalPrice, ID_BASE + firstItem, "item" + firstItem, itemPrice(properties.getSeed(), firstItem), firstQuantity);
+            rows += count;
+            chunk.flushEvery(i); // 주문상품이 주문보다 먼저 들어가지 않도록 네 테이블을 같이
+        }
+        return rows;
+    }
+
+    private static int itemPrice(long seed, int item) {
+        return 1000 + (int) Math.floorMod(mix(seed + item), 50L) * 1000;
+    }
+
+    /**
+     * splitmix64 finalizer
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static void validate(SeedProperties properties) {
+        if (properties.getOrders() > 0 && (properties.getMembers() <= 0 || properties.getItems() <= 0)) {
+            throw new IllegalArgumentException("주문을 만들려면 회원과 상품이 필요합니다.");
+        }
+        if (properties.getMinItemsPerOrder() < 1 || properties.getMaxItemsPerOrder() < properties.getMinItemsPerOrder()) {
+            throw new IllegalArgumentException("주문상품 수는 1 <= min <= max 이어야 합니다.");
+        }
+        if (properties.getParallelism() < 1 || properties.getChunkSize() < 1) {
+            throw new IllegalArgumentException("parallelism, chunkSize 는 1 이상이어야 합니다.");
+        }
+    }
+
+    private Path createCsvDir() {
+        try (Connection connection = dataSource.getConnection()) {
+            if (!"H2".equals(connection.getMetaData().getDatabaseProductName())) {
+                throw new IllegalStateException("CSV 적재는 H2 에서만 가능합니다.");
+            }
+            return Files.createTempDirectory("seed-");
+        } catch (SQLException | IOException e) {
+            throw new IllegalStateException("CSV 적재 준비 실패", e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface ChunkWriter {
+        long write(Chunk chunk) throws Exception;
+    }
+
+    /**
+     * id 범위 [from, to) 하나 - 커넥션 1개, 트랜잭션 1개
+     */
+    private static final class Chunk {
+        final SeedProperties properties;
+        final int from;
+        final int to;
+        final Path csvDir;
+        final List<Sink> sinks = new ArrayList<>();
+        Connection connection;
+
+        Chunk(SeedProperties properties, int from, int to, Path csvDir) {
+            this.properties = properties;
+            this.from = from;
+            this.to = to;
+            this.csvDir = csvDir;
+        }
+
+        Sink sink(Table table) throws SQLException, IOException {
+            Sink sink = csvDir == null ? new BatchSink(connection, table) : new CsvSink(connection, table, csvDir);
+            sinks.add(sink);
+            return sink;
+        }
+
+        void flushEvery(int i) throws SQLException {
+            if ((i - from + 1) % BATCH_SIZE == 0) {
+                for (Sink sink : sinks) {
+                    sink.flush();
+                }
+            }
+        }
+
+        /**
+         * 만든 순서(fk 순서)대로 마무리
+         */
+        void finish() throws SQLException, IOException {
+            for (Sink sink : sinks) {
+                sink.close();
+            }
+        }
+
+        void discard() {
+            sinks.forEach(Sink::discard);
+        }
+    }
+
+    private static final class Table {
+        final String name;
+        final String[] columns;
+
+        Table(String name, String... columns) {
+            this.name = name;
+            this.columns = columns;
+        }
+
+        String columnList() {
+            return String.join(", ", columns);
+        }
+    }
+
+    private interface Sink {
+        void add(Object... values) throws SQLException, IOException;
+
+        void flush() throws SQLException;
+
+        void close() throws SQLException, IOException;
+
+        /**
+         * 실패한 chunk 정리 (예외를 던지지 않는다.)
+         */
+        void discard();
+    }
+
+    private static final class BatchSink implements Sink {
+        private final PreparedStatement statement;
+
+        BatchSink(Connection connection, Table table) throws SQLException {
+            String placeholders = String.join(", ", Collections.nCopies(table.columns.length, "?"));
+            this.statement = connection.prepareStatement(
+                    "insert into " + table.name + " (" + table.columnList() + ") values (" + placeholders + ")");
+        }
+
+        @Override
+        public void add(Object... values) throws SQLException {
+            for (int i = 0; i < values.length; i++) {
+                statement.setObject(i + 1, values[i]);
+            }
+            statement.addBatch();
+        }
+
+        @Override
+        public void flush() throws SQLException {
+            statement.executeBatch();
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                statement.executeBatch();
+            } finally {
+                statement.close();
+            }
+        }
+
+        @Override
+        public void discard() {
+            try {
+                statement.close();
+            } catch (SQLException ignored) {
+            }
+        }
+    }
+
+    /**
+     * chunk 전체를 csv 로 쓰고 마지막에 insert ... select from csvread 1번
+     * (H2 가 파일을 직접 읽으므로 H2 서버와 같은 파일 시스템이어야 한다.)
+     */
+    private static final class CsvSink implements Sink {
+        private final Connection connection;
+        private final Table table;
+        private final Path file;
+        private final BufferedWriter out;
+
+        CsvSink(Connection connection, Table table, Path dir) throws IOException {
+            this.connection = connection;
+            this.table = table;
+            this.file = Files.createTempFile(dir, table.name + "-", ".csv");
+            this.out = Files.newBufferedWriter(file);
+            out.write(String.join(",", table.columns));
+            out.newLine();
+        }
+
+        @Override
+        public void add(Object... values) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                out.write(String.valueOf(values[i])); // 값에 , " 줄바꿈이 없다.
+            }
+            out.newLine();
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() throws SQLException, IOException {
+            out.close();
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "insert into " + table.name + " (" + table.columnList() + ") select * from csvread(?, null, 'charset=UTF-8')")) {
+                statement.setString(1, file.toAbsolutePath().toString());
+                statement.executeUpdate();
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+
+        @Override
+        public void discard() {
+            try {
+                out.close();
+                Files.deleteIfExists(file);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
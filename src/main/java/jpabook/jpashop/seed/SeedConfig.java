@@ -0,0 +1,34 @@
+package jpabook.jpashop.seed;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * seed 프로파일(jpashop.seed.enabled=true) - 시작할 때 1번 대량 데이터를 적재한다.
+ * 이미 적재한 데이터가 있으면 건너뛴다.(ddl-auto: none 으로 다시 띄우는 경우)
+ * 회원 이름 필터(MemberNameFilter)는 ApplicationReadyEvent 에서 다시 만들어지므로 적재한 회원도 반영된다.
+ */
+@Slf4j
+@Configuration
+@EnableConfigurationProperties(SeedProperties.class)
+public class SeedConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "jpashop.seed.enabled", havingValue = "true")
+    public ApplicationRunner seedRunner(DataSource dataSource, SeedProperties properties) {
+        return args -> {
+            DataSeeder seeder = new DataSeeder(dataSource);
+            if (seeder.isSeeded()) {
+                log.info("이미 적재된 데이터가 있어서 건너뜁니다. (member_id >= {})", DataSeeder.ID_BASE);
+                return;
+            }
+            seeder.seed(properties);
+        };
+    }
+}
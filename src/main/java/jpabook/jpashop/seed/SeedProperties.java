@@ -0,0 +1,73 @@
+package jpabook.jpashop.seed;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.Duration;
+import java.time.LocalDate;
+
+/**
+ * 대량 데이터 적재 설정 (jpashop.seed)
+ *
+ * seed 프로파일로 시작할 때 쓰고(application-seed.yml), 테스트/벤치마크에서는 직접 만들어서 DataSeeder 에 넘긴다.
+ * 같은 설정이면 parallelism, chunkSize, mode 와 상관없이 항상 같은 데이터가 만들어진다.
+ */
+@Getter @Setter
+@ConfigurationProperties("jpashop.seed")
+public class SeedProperties {
+
+    private boolean enabled;
+    private long seed = 42;
+
+    private int members;
+    private int items;
+    private int orders;
+
+    // 주문 1건당 주문상품 수 (min ~ max 균등)
+    private int minItemsPerOrder = 1;
+    private int maxItemsPerOrder = 3;
+
+    // 상위 hotItemRatio 비율의 상품이 주문상품의 hotOrderRatio 를 차지한다.(0 이면 균등)
+    private double hotItemRatio = 0.01;
+    private double hotOrderRatio;
+
+    // 주문일은 orderDateFrom 부터 orderDateSpread 동안 주문 id 순으로 고르게 퍼진다.
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate orderDateFrom = LocalDate.of(2020, 1, 1);
+    private Duration orderDateSpread = Duration.ofDays(365);
+
+    private int itemStock = Integer.MAX_VALUE / 2; // 부하 중에 재고가 떨어지지 않도록
+
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private int chunkSize = 10_000;
+    private Mode mode = Mode.BATCH;
+
+    public enum Mode {
+        BATCH, // JDBC batch insert
+        CSV    // chunk 를 csv 파일로 쓰고 H2 CSVREAD 로 한번에 (H2 전용)
+    }
+
+    /**
+     * 벤치마크용 기본 모양 : 회원은 주문 10건당 1명, 상품 1000개, 주문 1건당 주문상품 2건
+     */
+    public static SeedProperties forOrders(int orderCount) {
+        SeedProperties properties = new SeedProperties();
+        properties.setMembers(Math.max(1, orderCount / 10));
+        properties.setItems(1000);
+        properties.setOrders(orderCount);
+        properties.setMinItemsPerOrder(2);
+        properties.setMaxItemsPerOrder(2);
+        return properties;
+    }
+
+    /**
+     * 회원만 (이름 : member0 ~ member{memberCount-1})
+     */
+    public static SeedProperties forMembers(int memberCount) {
+        SeedProperties properties = new SeedProperties();
+        properties.setMembers(memberCount);
+        return properties;
+    }
+}
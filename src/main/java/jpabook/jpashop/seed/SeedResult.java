@@ -0,0 +1,19 @@
+package jpabook.jpashop.seed;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * 적재한 row 수, 걸린 시간
+ */
+@Getter
+@AllArgsConstructor
+public class SeedResult {
+    private final long members;
+    private final long items;
+    private final long orders;
+    private final long orderItems;
+    private final Duration elapsed;
+}
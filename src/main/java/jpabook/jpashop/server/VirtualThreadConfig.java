@@ -0,0 +1,65 @@
+package jpabook.jpashop.server;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * 가상 스레드 요청 처리 모드 (jpashop.server.virtual-threads=true, JDK 21 이상에서 실행)
+ *
+ * - 톰캣 요청 처리와 비동기 응답(StreamingResponseBody - 주문 내보내기)을 요청마다 가상 스레드에서 실행한다.
+ *   서비스의 @Transactional 메서드도 요청 스레드에서 호출되므로 같이 가상 스레드에서 돈다.
+ * - DB 가 느려도 톰캣 스레드 수(server.tomcat.threads.max)에 막히지 않는다.
+ *   동시 실행을 제한하는 것은 커넥션 풀(hikari maximum-pool-size, connection-timeout)뿐이다.
+ * - synchronized 안에서 블로킹(JDBC 등)하면 가상 스레드가 캐리어 스레드에 고정(pinning)된다. -> PinningMonitor, /internal/pinning
+ * - JDK 21 미만이면 경고만 남기고 기존 스레드 풀로 동작한다.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "jpashop.server.virtual-threads", havingValue = "true")
+public class VirtualThreadConfig implements WebMvcConfigurer, DisposableBean {
+
+    private final ExecutorService executor;
+
+    public VirtualThreadConfig() {
+        if (VirtualThreads.isSupported()) {
+            executor = VirtualThreads.newThreadPerTaskExecutor("vt-request-");
+            log.info("가상 스레드 요청 처리 모드");
+        } else {
+            executor = null;
+            log.warn("jpashop.server.virtual-threads=true 지만 JDK {} 는 가상 스레드를 지원하지 않습니다. 플랫폼 스레드 풀로 동작합니다.",
+                    System.getProperty("java.version"));
+        }
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> {
+            if (executor != null) {
+                protocolHandler.setExecutor(executor);
+            }
+        };
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        if (executor != null) {
+            configurer.setTaskExecutor(new TaskExecutorAdapter(executor));
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+}
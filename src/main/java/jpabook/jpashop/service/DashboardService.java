@@ -0,0 +1,169 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.cache.QueryResultCache;
+import jpabook.jpashop.cache.QueryResultCache.Region;
+import jpabook.jpashop.repository.ItemRepository;
+import jpabook.jpashop.repository.MemberRepository;
+import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * 관리자 홈 화면(회원 목록, 주문 목록, 상품 목록)을 한번에 조회
+ *
+ * - 서로 상관없는 조회 3개를 전용 executor 에서 동시에 실행한다. -> 응답 시간 = 셋의 합이 아니라 가장 느린 것
+ * - 조회마다 별도 스레드의 readOnly 트랜잭션(= 자기 EntityManager, 커넥션)이다. DTO 변환까지 트랜잭션 안에서 끝낸다.(OSIV 없음)
+ * - 전체 deadline 이 지나면 기다리지 않고, 끝난 것만 담아서 돌려준다.(section 마다 상태)
+ *   트랜잭션 timeout 도 deadline 으로 걸어서 늦은 조회는 DB 쿼리 timeout 으로 끝난다.
+ *   (주문 목록은 OrderQueryRepository 가 자기 트랜잭션으로 조회하므로 jpashop.in-loader.timeout 이 적용된다.)
+ * - executor 큐가 가득 차면 해당 section 은 REJECTED (요청이 몰릴 때 스레드/커넥션이 무한히 늘지 않는다.)
+ * - 결과는 조회 API 와 같은 QueryResultCache 를 거친다.(주문 목록은 /api/v5/orders 와 같은 항목)
+ */
+@Slf4j
+@Service
+public class DashboardService implements DisposableBean {
+
+    public enum Status {
+        OK, TIMEOUT, FAILED, REJECTED
+    }
+
+    private final MemberRepository memberRepository;
+    private final ItemRepository itemRepository;
+    private final OrderQueryRepository orderQueryRepository;
+    private final QueryResultCache queryResultCache;
+
+    private final Duration deadline;
+    private final TransactionTemplate readOnlyTx;
+    private final ThreadPoolTaskExecutor executor;
+
+    public DashboardService(MemberRepository memberRepository,
+                            ItemRepository itemRepository,
+                            OrderQueryRepository orderQueryRepository,
+                            QueryResultCache queryResultCache,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${jpashop.dashboard.deadline:2s}") Duration deadline,
+                            @Value("${jpashop.dashboard.parallelism:6}") int parallelism,
+                            @Value("${jpashop.dashboard.queue-capacity:30}") int queueCapacity) {
+        this.memberRepository = memberRepository;
+        this.itemRepository = itemRepository;
+        this.orderQueryRepository = orderQueryRepository;
+        this.queryResultCache = queryResultCache;
+        this.deadline = deadline;
+
+        this.readOnlyTx = new TransactionTemplate(transactionManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.readOnlyTx.setTimeout((int) Math.max(1, (deadline.toMillis() + 999) / 1000));
+
+        this.executor = new ThreadPoolTaskExecutor();
+        this.executor.setCorePoolSize(parallelism);
+        this.executor.setMaxPoolSize(parallelism);
+        this.executor.setQueueCapacity(queueCapacity);
+        this.executor.setThreadNamePrefix("dashboard-");
+        this.executor.initialize();
+    }
+
+    public Map<String, Section> load() {
+        Map<String, CompletableFuture<Object>> futures = new LinkedHashMap<>();
+        Map<String, Section> sections = new LinkedHashMap<>();
+        long startNanos = System.nanoTime();
+
+        submit("members", "dashboard.members",
+                () -> memberRepository.findAll().stream()
+                        .map(m -> new MemberSummary(m.getId(), m.getName()))
+                        .collect(Collectors.toList()),
+                futures, sections, Region.MEMBER);
+        submit("orders", "orders.v5", orderQueryRepository::findAllByDto_optimization,
+                futures, sections, Region.ORDER, Region.MEMBER, Region.ITEM);
+        submit("items", "dashboard.items",
+                () -> itemRepository.findAll().stream()
+                        .map(i -> new ItemSummary(i.getId(), i.getName(), i.getPrice(), i.getStockQuantity()))
+                        .collect(Collectors.toList()),
+                futures, sections, Region.ITEM, Region.ORDER); //재고는 주문(ORDER), 예약 확정분 flush(ITEM)로도 바뀐다.
+
+        long deadlineNanos = startNanos + deadline.toNanos();
+        futures.forEach((name, future) -> sections.put(name, await(future, deadlineNanos, startNanos)));
+        return sections;
+    }
+
+    /**
+     * 캐시에 있으면 트랜잭션(커넥션) 없이 바로 꺼내고, 없을 때만 readOnly 트랜잭션으로 조회한다.
+     */
+    private void submit(String name, String shape, Supplier<?> query,
+                        Map<String, CompletableFuture<Object>> futures, Map<String, Section> sections, Region... regions) {
+        try {
+            futures.put(name, CompletableFuture.supplyAsync(() -> queryResultCache.get(shape, Collections.emptyList(),
+                    () -> readOnlyTx.execute(status -> query.get()), regions), executor));
+            sections.put(name, null); //순서 유지
+        } catch (TaskRejectedException e) {
+            sections.put(name, new Section(Status.REJECTED, 0, null, "dashboard executor is full"));
+        }
+    }
+
+    private static Section await(CompletableFuture<Object> future, long deadlineNanos, long startNanos) {
+        try {
+            Object data = future.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+            return new Section(Status.OK, elapsedMillis(startNanos), data, null);
+        } catch (TimeoutException e) {
+            future.cancel(false);
+            return new Section(Status.TIMEOUT, elapsedMillis(startNanos), null, null);
+        } catch (ExecutionException e) {
+            log.warn("dashboard section failed", e.getCause());
+            return new Section(Status.FAILED, elapsedMillis(startNanos), null, e.getCause().getClass().getSimpleName());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Section(Status.FAILED, elapsedMillis(startNanos), null, "interrupted");
+        }
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Section {
+        private final Status status;
+        private final long elapsedMillis;
+        private final Object data;
+        private final String error;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class MemberSummary {
+        private Long id;
+        private String name;
+    }
+
+    @Data
+    @AllArgsConstructor
+    static class ItemSummary {
+        private Long id;
+        private String name;
+        private int price;
+        private int stockQuantity;
+    }
+}
@@ -1,7 +1,10 @@
 package jpabook.jpashop.service;
 
+import jpabook.jpashop.cache.QueryResultCache;
 import jpabook.jpashop.domain.item.Item;
 import jpabook.jpashop.repository.ItemRepository;
+import jpabook.jpashop.repository.ItemStockRepository;
+import jpabook.jpashop.repository.order.summary.OrderSummaryRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -14,10 +17,14 @@ import java.util.List;
 public class ItemService {
 
     private final ItemRepository itemRepository;
+    private final ItemStockRepository itemStockRepository;
+    private final OrderSummaryRepository orderSummaryRepository;
+    private final QueryResultCache queryResultCache;
 
     @Transactional
     public void saveItem(Item item) {
         itemRepository.save(item);
+        queryResultCache.invalidateAfterCommit(QueryResultCache.Region.ITEM);
     }
 
     @Transactional
@@ -25,7 +32,23 @@ public class ItemService {
         Item item = itemRepository.findOne(itemId);
         item.setName(name);
         item.setPrice(price);
-        item.setStockQuantity(stockQuantity);
+        if (item.isStockSharded()) {
+            itemStockRepository.changeShardedStock(item, stockQuantity);
+        } else {
+            item.setStockQuantity(stockQuantity);
+        }
+        orderSummaryRepository.updateItemName(itemId, name); //주문 요약의 대표상품명
+        queryResultCache.invalidateAfterCommit(QueryResultCache.Region.ITEM);
+    }
+
+    /**
+     * 주문이 몰리는 상품의 재고를 shardCount 개의 row로 나눈다.(재고 row 락 경합 분산)
+     */
+    @Transactional
+    public void shardStock(Long itemId, int shardCount) {
+        Item item = itemRepository.findOne(itemId);
+        itemStockRepository.shard(item, shardCount);
+        queryResultCache.invalidateAfterCommit(QueryResultCache.Region.ITEM);
     }
 
     public List<Item> findItems() {
@@ -0,0 +1,116 @@
+package jpabook.jpashop.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 회원 이름 Bloom filter (회원 가입 중복 확인용)
+ *
+ * - mightContain 이 false 면 처음 보는 이름이다.(중복 확인 쿼리 생략)
+ * - true 면 오탐(fpp)일 수 있으므로 DB 로 확인한다.
+ * - 시작할 때 member 테이블로 만들고, 가입/이름 변경 때 추가한다.(지울 수는 없다 - 바뀐 예전 이름은 오탐으로 남는다.)
+ * - 필터가 틀려도(다른 경로로 들어온 회원 등) member.name 유니크 제약이 최종적으로 막는다.
+ * - 만들어지기 전(시작 중)에는 항상 true
+ */
+@Slf4j
+@Component
+public class MemberNameFilter {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final int hashCount;
+    private final long bitCount;
+    private final AtomicLongArray bits;
+
+    private volatile boolean ready;
+
+    public MemberNameFilter(JdbcTemplate jdbcTemplate,
+                            @Value("${jpashop.member.name-filter.enabled:true}") boolean enabled,
+                            @Value("${jpashop.member.name-filter.expected-members:1000000}") long expectedMembers,
+                            @Value("${jpashop.member.name-filter.fpp:0.01}") double fpp) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+
+        // m = -n ln(p) / (ln2)^2, k = m/n ln2
+        long m = enabled ? (long) Math.ceil(-expectedMembers * Math.log(fpp) / (Math.log(2) * Math.log(2))) : 64;
+        this.bits = new AtomicLongArray((int) ((m + 63) / 64));
+        this.bitCount = bits.length() * 64L;
+        this.hashCount = Math.max(1, (int) Math.round((double) m / expectedMembers * Math.log(2)));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        ready = false;
+        int[] count = new int[1];
+        jdbcTemplate.query("select name from member", rs -> {
+            put(rs.getString(1));
+            count[0]++;
+        });
+        ready = true;
+        log.info("회원 이름 필터 - {}명 로딩 ({} bits, hash {}개)", count[0], bitCount, hashCount);
+    }
+
+    public boolean mightContain(String name) {
+        if (!enabled || !ready) {
+            return true;
+        }
+        long hash = hash(name);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = index(h1 + i * h2);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void put(String name) {
+        if (!enabled || name == null) {
+            return;
+        }
+        long hash = hash(name);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = index(h1 + i * h2);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current;
+            while (((current = bits.get(word)) & mask) == 0 && !bits.compareAndSet(word, current, current | mask)) {
+                // 다른 스레드가 같은 word 를 바꿨으면 다시 시도
+            }
+        }
+    }
+
+    private long index(int combined) {
+        return (combined & Integer.MAX_VALUE) % bitCount;
+    }
+
+    /**
+     * FNV-1a 64bit + murmur3 finalizer
+     */
+    private static long hash(String name) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < name.length(); i++) {
+            h ^= name.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
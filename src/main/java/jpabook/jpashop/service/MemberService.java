@@ -1,8 +1,11 @@
 package jpabook.jpashop.service;
 
+import jpabook.jpashop.cache.QueryResultCache;
 import jpabook.jpashop.domain.Member;
 import jpabook.jpashop.repository.MemberRepository;
+import jpabook.jpashop.repository.order.summary.OrderSummaryRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -14,6 +17,9 @@ import java.util.List;
 public class MemberService {
 
     private final MemberRepository memberRepository;
+    private final QueryResultCache queryResultCache;
+    private final MemberNameFilter memberNameFilter;
+    private final OrderSummaryRepository orderSummaryRepository;
 
     /**
      * 회원 가입
@@ -23,16 +29,30 @@ public class MemberService {
 
         validateDuplicateMember(member); //중복 회원 검증
         memberRepository.save(member);
+        flushName(member.getName()); //동시에 같은 이름으로 가입하면 유니크 제약이 막는다.
+        queryResultCache.invalidateAfterCommit(QueryResultCache.Region.MEMBER);
         return member.getId();
     }
 
+    /**
+     * 필터에 없으면 처음 보는 이름 -> 쿼리 없이 통과
+     * 필터에 있으면(오탐일 수 있음) 이름 인덱스로 존재 여부만 확인
+     */
     private void validateDuplicateMember(Member member) {
-        List<Member> findMembers = memberRepository.findByName(member.getName());
-        if (!findMembers.isEmpty()) {
+        if (memberNameFilter.mightContain(member.getName()) && memberRepository.existsByName(member.getName())) {
             throw new IllegalStateException("이미 존재하는 회원입니다.");
         }
     }
 
+    private void flushName(String name) {
+        try {
+            memberRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            throw new IllegalStateException("이미 존재하는 회원입니다.", e);
+        }
+        memberNameFilter.put(name);
+    }
+
     //회원 전체 조회
     public List<Member> findMembers() {
         return memberRepository.findAll();
@@ -49,6 +69,9 @@ public class MemberService {
     public void update(Long id, String name) {
         Member member = memberRepository.findOne(id);
         member.setName(name);
+        flushName(name);
+        orderSummaryRepository.updateMemberName(id, name); //주문 요약의 회원명
+        queryResultCache.invalidateAfterCommit(QueryResultCache.Region.MEMBER);
     }
 
 }
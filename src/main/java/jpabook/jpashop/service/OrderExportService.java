@@ -0,0 +1,67 @@
+package jpabook.jpashop.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jpabook.jpashop.repository.order.query.OrderFlatDto;
+import jpabook.jpashop.repository.order.query.OrderFlatIterator;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.stream.Stream;
+
+/**
+ * 전체 주문을 NDJSON(한 줄에 주문 1건)으로 내보낸다.
+ *
+ * 주문 목록을 List 로 모으지 않고 JDBC 결과를 읽는 대로 한 건씩 써서 내보내므로,
+ * 주문 수와 상관없이 메모리 사용량이 일정하고 첫 바이트가 바로 나간다.
+ */
+@Service
+@Transactional(readOnly = true)
+@RequiredArgsConstructor
+public class OrderExportService {
+
+    private final OrderQueryRepository orderQueryRepository;
+    private final ObjectMapper objectMapper;
+
+    @Value("${jpashop.export.fetch-size:1000}")
+    private int fetchSize;
+
+    @Value("${jpashop.export.flush-every:100}")
+    private int flushEvery;
+
+    public void exportOrders(OutputStream out) throws IOException {
+        // 주문마다 flush 하지 않고 flushEvery 건마다 한 번씩 내보낸다.
+        ObjectWriter writer = objectMapper.writerFor(OrderQueryDto.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null); // 줄 구분은 writeLine 에서 '\n' 으로
+
+        try (Stream<OrderFlatDto> rows = orderQueryRepository.streamAllByDto_flat(null, fetchSize)) {
+            // 주문 id 순으로 정렬된 row를 같은 주문끼리 묶어서 한 줄씩 쓴다.
+            OrderFlatIterator orders = new OrderFlatIterator(rows.iterator());
+            int written = 0;
+            while (orders.hasNext()) {
+                writeLine(writer, generator, orders.next());
+                if (++written % flushEvery == 0) {
+                    generator.flush();
+                }
+            }
+        } finally {
+            generator.flush();
+        }
+    }
+
+    private void writeLine(ObjectWriter writer, JsonGenerator generator, OrderQueryDto order) throws IOException {
+        writer.writeValue(generator, order);
+        generator.writeRaw('\n');
+    }
+}
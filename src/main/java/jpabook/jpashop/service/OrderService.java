@@ -1,16 +1,23 @@
 package jpabook.jpashop.service;
 
+import jpabook.jpashop.cache.QueryResultCache;
 import jpabook.jpashop.domain.*;
 import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.domain.item.ItemStockStore;
 import jpabook.jpashop.repository.ItemRepository;
+import jpabook.jpashop.repository.ItemStockRepository;
 import jpabook.jpashop.repository.MemberRepository;
 import jpabook.jpashop.repository.OrderRepository;
 import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.repository.order.summary.OrderSummaryDto;
+import jpabook.jpashop.repository.order.summary.OrderSummaryRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.List;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional(readOnly = true)
@@ -18,8 +25,12 @@ import java.util.List;
 public class OrderService {
 
     private final OrderRepository orderRepository;
+    private final OrderSummaryRepository orderSummaryRepository;
     private final MemberRepository memberRepository;
     private final ItemRepository itemRepository;
+    private final ItemStockRepository itemStockRepository;
+    private final StockReservationService stockReservationService;
+    private final QueryResultCache queryResultCache;
 
     /**
      * 주문
@@ -36,18 +47,122 @@ public class OrderService {
         delivery.setAddress(member.getAddress());
         delivery.setStatus(DeliveryStatus.READY);
 
-        //주문상품 생성
-        OrderItem orderItem = OrderItem.createOrderItem(item, item.getPrice(), count);
+        //주문상품 생성(주문가능 수량을 먼저 잡고, 재고는 조건부 update로 원자적으로 차감)
+        OrderItem orderItem = OrderItem.createOrderItem(
+                stockReservationService.stockStore(itemStockRepository), item, item.getPrice(), count);
 
         //주문 생성
         Order order = Order.createOrder(member, delivery, orderItem);
 
         //주문 저장
         orderRepository.save(order);
+        orderSummaryRepository.save(order);
+        queryResultCache.invalidateAfterCommit(QueryResultCache.Region.ORDER);
 
         return order.getId();
     }
 
+    /**
+     * 예약한 재고로 주문(결제 완료)
+     * 예약은 커밋되면 확정되고, 롤백되면 다시 풀린다.
+     */
+    @Transactional
+    public Long orderReserved(Long memberId, String holdId) {
+
+        //예약 확정
+        StockHold hold = stockReservationService.confirm(holdId);
+
+        //엔티티 조회
+        Member member = memberRepository.findOne(memberId);
+        Item item = itemRepository.findOne(hold.getItemId());
+
+        //배송정보 생성
+        Delivery delivery = new Delivery();
+        delivery.setAddress(member.getAddress());
+        delivery.setStatus(DeliveryStatus.READY);
+
+        //주문상품 생성(재고는 예약 확정에서 이미 차감)
+        OrderItem orderItem = OrderItem.createOrderItem(
+                stockReservationService.heldStockStore(hold, itemStockRepository), item, item.getPrice(), hold.getQuantity());
+
+        //주문 생성
+        Order order = Order.createOrder(member, delivery, orderItem);
+
+        //주문 저장
+        orderRepository.save(order);
+        orderSummaryRepository.save(order);
+        queryResultCache.invalidateAfterCommit(QueryResultCache.Region.ORDER);
+
+        return order.getId();
+    }
+
+    /**
+     * 여러 주문 한번에 처리(주문마다 상품 여러 개)
+     *
+     * - 회원, 상품을 주문마다 조회하지 않고 in 조회로 한번에 가져온다.
+     * - 상품은 id 순서로 락을 잡는다.(동시에 들어온 대량 주문끼리 교착상태 방지)
+     * - insert 는 hibernate JDBC batch(jdbc.batch_size, order_inserts, order_updates)로 묶여서 나간다.
+     * - 재고가 부족한 주문이 하나라도 있으면 전체가 롤백된다.
+     */
+    @Transactional
+    public List<Long> orderAll(List<OrderCommand> commands) {
+
+        //엔티티 조회
+        Set<Long> memberIds = commands.stream()
+                .map(OrderCommand::getMemberId)
+                .collect(Collectors.toSet());
+        Set<Long> itemIds = commands.stream()
+                .flatMap(c -> c.getLines().stream())
+                .map(OrderCommand.Line::getItemId)
+                .collect(Collectors.toCollection(TreeSet::new));
+
+        Map<Long, Member> members = memberRepository.findAllById(memberIds).stream()
+                .collect(Collectors.toMap(Member::getId, Function.identity()));
+        Map<Long, Item> items = itemRepository.findAllForUpdate(itemIds).stream()
+                .collect(Collectors.toMap(Item::getId, Function.identity()));
+
+        List<Order> orders = new ArrayList<>(commands.size());
+        for (OrderCommand command : commands) {
+            Member member = getOrThrow(members, command.getMemberId(), "회원");
+
+            //배송정보 생성
+            Delivery delivery = new Delivery();
+            delivery.setAddress(member.getAddress());
+            delivery.setStatus(DeliveryStatus.READY);
+
+            //주문상품 생성
+            OrderItem[] orderItems = command.getLines().stream()
+                    .map(line -> {
+                        Item item = getOrThrow(items, line.getItemId(), "상품");
+                        // 샤딩된 재고는 상품 row 락으로 보호되지 않으므로 조건부 update 로 뺀다.
+                        ItemStockStore stockStore = stockReservationService.stockStore(
+                                item.isStockSharded() ? itemStockRepository : ItemStockStore.IN_MEMORY);
+                        return OrderItem.createOrderItem(stockStore, item, item.getPrice(), line.getCount());
+                    })
+                    .toArray(OrderItem[]::new);
+
+            //주문 생성
+            orders.add(Order.createOrder(member, delivery, orderItems));
+        }
+
+        //주문 저장
+        orderRepository.saveAll(orders);
+        orderSummaryRepository.saveAll(orders);
+        queryResultCache.invalidateAfterCommit(QueryResultCache.Region.ORDER);
+
+        return orders.stream()
+                .map(Order::getId)
+                .collect(Collectors.toList());
+    }
+
+    private static <T> T getOrThrow(Map<Long, T> entities, Long id, String name) {
+        T entity = entities.get(id);
+        if (entity == null) {
+            throw new IllegalArgumentException("존재하지 않는 " + name + "입니다. id=" + id);
+        }
+        return entity;
+    }
+
     /**
      * 주문 취소
      */
@@ -56,11 +171,20 @@ public class OrderService {
         //주문 엔티티 조회
         Order order = orderRepository.findOne(orderId);
         //주문 취소
-        order.cancel();
+        order.cancel(stockReservationService.stockStore(itemStockRepository));
+        orderSummaryRepository.updateStatus(order);
+        queryResultCache.invalidateAfterCommit(QueryResultCache.Region.ORDER);
     }
 
     //검색
     public List<Order> findOrders(OrderSearch orderSearch) {
-        return orderRepository.findAllByString(orderSearch);
+        return orderRepository.findAllBySearch(orderSearch);
+    }
+
+    /**
+     * 주문 목록 화면 - order_summary 만 읽는다.(최대 1000건)
+     */
+    public List<OrderSummaryDto> findOrderSummaries(OrderSearch orderSearch) {
+        return orderSummaryRepository.findAll(orderSearch, null, 1000);
     }
 }
@@ -0,0 +1,44 @@
+package jpabook.jpashop.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 결제 전까지 잡아둔 재고(StockReservationService)
+ * expiresAt 이 지나면 자동으로 풀린다.
+ */
+@Getter
+public class StockHold implements Delayed {
+
+    private final String id;
+    private final Long itemId;
+    private final int quantity;
+    private final Instant expiresAt;
+
+    StockHold(Long itemId, int quantity, Instant expiresAt) {
+        this.id = UUID.randomUUID().toString();
+        this.itemId = itemId;
+        this.quantity = quantity;
+        this.expiresAt = expiresAt;
+    }
+
+    @JsonIgnore
+    public boolean isExpired() {
+        return !Instant.now().isBefore(expiresAt);
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+        return unit.convert(expiresAt.toEpochMilli() - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public int compareTo(Delayed other) {
+        return expiresAt.compareTo(((StockHold) other).expiresAt);
+    }
+}
@@ -0,0 +1,427 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.cache.QueryResultCache;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.domain.item.ItemStockStore;
+import jpabook.jpashop.exception.NotEnoughStockException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 장바구니/결제용 재고 예약 (Item.removeStock/addStock 앞단)
+ *
+ * - 상품별 주문가능 수량을 메모리(AtomicLong)에 두고 CAS 로 잡는다. 예약/해제에 DB 쓰기가 없다.
+ * - 예약(StockHold)은 hold-ttl 이 지나면 자동으로 풀린다.
+ * - 예약을 확정(confirm)하면 주문과 같은 트랜잭션에서 confirmed_stock_hold 에 한 row 를 넣는다.(item row 락 X)
+ *   flush-interval 마다 쌓인 row 를 상품별 순증감으로 모아 batch update 한 번으로 item 테이블에 반영하고 지운다.
+ *   -> 주문이 커밋되면 차감분은 DB 에 남는다.(flush 전에 내려가도 재시작 후 flush 가 반영)
+ * - 주문 경로의 재고 증감(일반 주문, 대량 주문, 취소)은 stockStore 로 감싸서 메모리 수량을 먼저 CAS 로 잡고 DB 를 바꾼다.
+ *   -> 예약과 일반 주문이 같은 수량을 나눠 가지므로 초과 판매가 없다.
+ * - 같은 flush 에서 item 테이블을 다시 읽어, 나머지 변경(주문 취소, 관리자 수정)을 메모리에 더한다.(최대 flush-interval 만큼 늦게 보인다.)
+ * - 재시작하면 item 테이블(- 반영 대기중인 확정분)에서 다시 만든다.(잡혀있던 예약은 사라진다.)
+ * - 샤딩된 상품(stockShardCount > 0)은 예약할 수 없다.(stockStore 도 그대로 통과)
+ */
+@Slf4j
+@Service
+public class StockReservationService implements DisposableBean {
+
+    private static final String SELECT_STOCK = "select item_id, stock_quantity from item where stock_shard_count = 0";
+    private static final String SELECT_CONFIRMED = "select hold_id, item_id, quantity from confirmed_stock_hold where owner = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory emf;
+    private final QueryResultCache queryResultCache;
+    private final TransactionTemplate flushTx;
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final String owner = UUID.randomUUID().toString(); // confirmed_stock_hold.owner
+    private final Duration holdTtl;
+    private final Duration flushInterval;
+    private final ThreadPoolTaskScheduler scheduler;
+
+    private final ConcurrentMap<Long, ItemStock> stocks = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, StockHold> holds = new ConcurrentHashMap<>();
+    private final DelayQueue<StockHold> expiry = new DelayQueue<>();
+
+    public StockReservationService(JdbcTemplate jdbcTemplate,
+                                   EntityManagerFactory emf,
+                                   QueryResultCache queryResultCache,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${jpashop.reservation.hold-ttl:10m}") Duration holdTtl,
+                                   @Value("${jpashop.reservation.flush-interval:1s}") Duration flushInterval) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.emf = emf;
+        this.queryResultCache = queryResultCache;
+        this.flushTx = new TransactionTemplate(transactionManager);
+        this.holdTtl = holdTtl;
+        this.flushInterval = flushInterval;
+
+        this.scheduler = new ThreadPoolTaskScheduler();
+        this.scheduler.setPoolSize(1); // flush 는 한 스레드에서만 (ItemStock.synced)
+        this.scheduler.setThreadNamePrefix("stock-reservation-");
+        this.scheduler.initialize();
+    }
+
+    /**
+     * item 테이블에서 주문가능 수량을 다시 만들고, 만료/flush 작업을 시작한다.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        // 이전 실행에서 확정됐지만 반영하지 못한 차감분을 가져온다.
+        jdbcTemplate.update("update confirmed_stock_hold set owner = ?", owner);
+        Map<Long, Long> confirmed = new HashMap<>();
+        jdbcTemplate.query(SELECT_CONFIRMED, rs -> {
+            confirmed.merge(rs.getLong(2), (long) rs.getInt(3), Long::sum);
+        }, owner);
+        jdbcTemplate.query(SELECT_STOCK, rs -> {
+            long itemId = rs.getLong(1);
+            int dbStock = rs.getInt(2);
+            // 확정됐지만 아직 반영 안 된 차감분은 주문가능 수량에서 뺀다.(다음 flush 가 item 에 반영)
+            stocks.computeIfAbsent(itemId, id -> new ItemStock(dbStock, dbStock - confirmed.getOrDefault(id, 0L)));
+        });
+        log.info("재고 예약 - 상품 {}개 로딩", stocks.size());
+
+        scheduler.scheduleWithFixedDelay(this::expireHolds, Duration.ofSeconds(1));
+        scheduler.scheduleWithFixedDelay(this::flush, flushInterval);
+    }
+
+    /**
+     * 재고 예약, 주문가능 수량이 부족하면 NotEnoughStockException
+     */
+    public StockHold reserve(Long itemId, int quantity) {
+        if (quantity < 1) {
+            throw new IllegalArgumentException("예약 수량은 1 이상이어야 합니다.");
+        }
+
+        take(stock(itemId).available, quantity);
+
+        StockHold hold = new StockHold(itemId, quantity, Instant.now().plus(holdTtl));
+        holds.put(hold.getId(), hold);
+        expiry.add(hold);
+        return hold;
+    }
+
+    /**
+     * 예약 해제(장바구니에서 삭제)
+     *
+     * @return 이미 만료/확정/해제된 예약이면 false
+     */
+    public boolean release(String holdId) {
+        StockHold hold = holds.remove(holdId);
+        if (hold == null) {
+            return false;
+        }
+        stock(hold.getItemId()).available.addAndGet(hold.getQuantity());
+        return true;
+    }
+
+    /**
+     * 예약 확정(주문)
+     *
+     * - 차감분을 confirmed_stock_hold 에 남긴다. 트랜잭션 안에서 호출하면 주문과 같이 커밋/롤백된다.(롤백되면 수량을 다시 풀어준다.)
+     * - 만료/확정/해제된 예약이면 IllegalStateException
+     */
+    public StockHold confirm(String holdId) {
+        StockHold hold = holds.remove(holdId);
+        if (hold == null) {
+            throw new IllegalStateException("만료되었거나 없는 예약입니다. id=" + holdId);
+        }
+        ItemStock stock = stock(hold.getItemId());
+        if (hold.isExpired()) {
+            stock.available.addAndGet(hold.getQuantity());
+            throw new IllegalStateException("만료된 예약입니다. id=" + holdId);
+        }
+
+        try {
+            jdbcTemplate.update("insert into confirmed_stock_hold (hold_id, owner, item_id, quantity) values (?, ?, ?, ?)",
+                    hold.getId(), owner, hold.getItemId(), hold.getQuantity());
+        } catch (RuntimeException e) {
+            stock.available.addAndGet(hold.getQuantity());
+            throw e;
+        }
+        onRollback(() -> stock.available.addAndGet(hold.getQuantity()));
+        return hold;
+    }
+
+    /**
+     * 주문 경로(일반 주문, 대량 주문, 주문 취소)의 재고 증감
+     *
+     * - 차감 : 메모리의 주문가능 수량을 먼저 CAS 로 잡고(부족하면 NotEnoughStockException) delegate 로 DB 재고를 뺀다.
+     *          롤백되면 다시 풀어준다.
+     * - 증가 : delegate 로 DB 재고를 늘린다.(주문가능 수량에는 다음 flush 에서 더해진다.)
+     * - 샤딩된 상품은 delegate 를 그대로 호출한다.
+     */
+    public ItemStockStore stockStore(ItemStockStore delegate) {
+        return new ReservingStockStore(delegate);
+    }
+
+    /**
+     * 예약(hold)을 확정한 주문 - 차감은 confirm 에서 끝났으므로 확인만 하고, 증가(주문 취소)는 stockStore 와 같다.
+     */
+    public ItemStockStore heldStockStore(StockHold hold, ItemStockStore delegate) {
+        return new HeldStockStore(hold, delegate);
+    }
+
+    /**
+     * 주문가능 수량(재고 - 예약 - 반영 대기중인 확정분), 모르는 상품이면 null
+     * DB 를 조회하지 않는다.
+     */
+    public Long available(Long itemId) {
+        ItemStock stock = stocks.get(itemId);
+        return stock == null ? null : stock.available.get();
+    }
+
+    /**
+     * 전체 상품의 주문가능 수량 (상품 목록 화면)
+     */
+    public Map<Long, Long> availableAll() {
+        Map<Long, Long> result = new HashMap<>(stocks.size() * 2);
+        stocks.forEach((itemId, stock) -> result.put(itemId, stock.available.get()));
+        return result;
+    }
+
+    public int getHoldCount() {
+        return holds.size();
+    }
+
+    void expireHolds() {
+        StockHold hold;
+        while ((hold = expiry.poll()) != null) {
+            // 이미 확정/해제된 예약은 map 에 없다.
+            if (holds.remove(hold.getId(), hold)) {
+                stock(hold.getItemId()).available.addAndGet(hold.getQuantity());
+            }
+        }
+    }
+
+    /**
+     * 확정된 차감분을 item 테이블에 반영하고, 다른 경로로 바뀐 재고를 메모리에 반영한다.
+     * (JDBC 를 기다리는 동안 잡는 락이므로 synchronized 대신 ReentrantLock - 가상 스레드 pinning X)
+     */
+    void flush() {
+        flushLock.lock();
+        try {
+            doFlush();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void doFlush() {
+        // DB 를 읽기 전에 가져간다.(여기까지 더해진 증감은 이미 커밋되어 아래 조회에 보인다.)
+        Map<Long, Long> reserved = new HashMap<>();
+        stocks.forEach((itemId, stock) -> {
+            long delta = stock.reserved.sumThenReset();
+            if (delta != 0) {
+                reserved.put(itemId, delta);
+            }
+        });
+
+        try {
+            Set<Long> flushed = flushTx.execute(status -> {
+                List<Object[]> holdIds = new ArrayList<>();
+                Map<Long, Long> deltas = new HashMap<>();
+                jdbcTemplate.query(SELECT_CONFIRMED, rs -> {
+                    holdIds.add(new Object[]{rs.getString(1)});
+                    deltas.merge(rs.getLong(2), (long) -rs.getInt(3), Long::sum);
+                }, owner);
+
+                if (!deltas.isEmpty()) {
+                    List<Object[]> rows = new ArrayList<>(deltas.size());
+                    deltas.forEach((itemId, delta) -> rows.add(new Object[]{delta, itemId}));
+                    jdbcTemplate.batchUpdate("update item set stock_quantity = stock_quantity + ? where item_id = ?", rows);
+                    jdbcTemplate.batchUpdate("delete from confirmed_stock_hold where hold_id = ?", holdIds);
+                    // 재고를 담은 조회 결과(관리자 홈 상품 목록)도 커밋 후 무효
+                    queryResultCache.invalidateAfterCommit(QueryResultCache.Region.ITEM);
+                }
+                reconcile(deltas, reserved);
+                return deltas.keySet();
+            });
+            // jdbc 로 바꿨으므로 2차 캐시는 직접 지운다.
+            flushed.forEach(itemId -> emf.getCache().evict(Item.class, itemId));
+        } catch (RuntimeException e) {
+            // 확정분은 테이블에 그대로 남아 있다. 메모리에 이미 반영된 증감만 돌려놓고 다음 flush 에서 다시
+            reserved.forEach((itemId, delta) -> stocks.get(itemId).reserved.add(delta));
+            log.warn("재고 예약 flush 실패", e);
+        }
+    }
+
+    /**
+     * @param applied  이번 flush 에서 item 에 반영한 확정분
+     * @param reserved 주문가능 수량에 이미 반영된 주문 경로의 차감(stockStore)
+     */
+    private void reconcile(Map<Long, Long> applied, Map<Long, Long> reserved) {
+        jdbcTemplate.query(SELECT_STOCK, rs -> {
+            long itemId = rs.getLong(1);
+            int dbStock = rs.getInt(2);
+
+            ItemStock stock = stocks.get(itemId);
+            if (stock == null) {
+                stocks.putIfAbsent(itemId, new ItemStock(dbStock, dbStock)); // 새로 등록된 상품
+                return;
+            }
+            long external = dbStock - stock.synced - applied.getOrDefault(itemId, 0L) - reserved.getOrDefault(itemId, 0L);
+            if (external != 0) {
+                stock.available.addAndGet(external);
+            }
+            stock.synced = dbStock;
+        });
+    }
+
+    private ItemStock stock(Long itemId) {
+        ItemStock stock = stocks.get(itemId);
+        if (stock != null) {
+            return stock;
+        }
+        // 시작 후(마지막 flush 이후) 등록된 상품
+        return stocks.computeIfAbsent(itemId, id -> {
+            try {
+                int dbStock = jdbcTemplate.queryForObject(
+                        "select stock_quantity from item where item_id = ? and stock_shard_count = 0", Integer.class, id);
+                return new ItemStock(dbStock, dbStock);
+            } catch (EmptyResultDataAccessException e) {
+                throw new IllegalArgumentException("예약할 수 없는 상품입니다.(없거나 샤딩된 상품) id=" + id);
+            }
+        });
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdown();
+        flush(); // 확정된 차감분은 남김없이 반영
+    }
+
+    private static void take(AtomicLong available, int quantity) {
+        long current;
+        do {
+            current = available.get();
+            if (current < quantity) {
+                throw new NotEnoughStockException("need more stock");
+            }
+        } while (!available.compareAndSet(current, current - quantity));
+    }
+
+    /**
+     * 트랜잭션이 커밋되면 실행 (트랜잭션 밖이면 바로)
+     */
+    private static void onCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * 트랜잭션이 롤백되면 실행 (트랜잭션 밖이면 실행하지 않는다.)
+     */
+    private static void onRollback(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    action.run();
+                }
+            }
+        });
+    }
+
+    private static final class ItemStock {
+        final AtomicLong available;
+        final LongAdder reserved = new LongAdder(); // 주문 경로(stockStore)로 커밋된 DB 차감 - 주문가능 수량에는 이미 반영됨
+        long synced; // 마지막으로 확인한 DB 재고 (flush 에서만 변경)
+
+        ItemStock(int dbStock, long available) {
+            this.available = new AtomicLong(available);
+            this.synced = dbStock;
+        }
+    }
+
+    private class ReservingStockStore implements ItemStockStore {
+
+        private final ItemStockStore delegate;
+
+        ReservingStockStore(ItemStockStore delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void removeStock(Item item, int quantity) {
+            if (item.isStockSharded()) {
+                delegate.removeStock(item, quantity);
+                return;
+            }
+            ItemStock stock = itemStock(item);
+            take(stock.available, quantity);
+            try {
+                delegate.removeStock(item, quantity);
+            } catch (RuntimeException e) {
+                stock.available.addAndGet(quantity);
+                throw e;
+            }
+            onCommit(() -> stock.reserved.add(-quantity));
+            onRollback(() -> stock.available.addAndGet(quantity));
+        }
+
+        /**
+         * 늘어난 재고는 다음 flush 에서 주문가능 수량에 더해진다.(늦게 보이는 쪽은 초과 판매가 없다.)
+         */
+        @Override
+        public void addStock(Item item, int quantity) {
+            delegate.addStock(item, quantity);
+        }
+
+        /**
+         * 시작 후(마지막 flush 이후) 등록된 상품은 엔티티 값으로 시작한다.(아직 커밋 전인 상품일 수 있다.)
+         */
+        private ItemStock itemStock(Item item) {
+            return stocks.computeIfAbsent(item.getId(), id -> new ItemStock(item.getStockQuantity(), item.getStockQuantity()));
+        }
+    }
+
+    private class HeldStockStore extends ReservingStockStore {
+
+        private final StockHold hold;
+
+        HeldStockStore(StockHold hold, ItemStockStore delegate) {
+            super(delegate);
+            this.hold = hold;
+        }
+
+        @Override
+        public void removeStock(Item item, int quantity) {
+            if (!hold.getItemId().equals(item.getId()) || hold.getQuantity() != quantity) {
+                throw new IllegalArgumentException("예약한 상품/수량과 다릅니다. hold=" + hold.getId());
+            }
+        }
+    }
+}
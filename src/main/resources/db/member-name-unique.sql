@@ -0,0 +1,8 @@
+-- member.name 유니크 제약 추가 스크립트 (H2)
+--
+-- 1. 중복된 이름이 있으면 제약을 추가할 수 없으므로 먼저 확인해서 정리한다.
+-- 2. 유니크 제약은 유니크 인덱스를 만든다. -> 가입 중복 확인(MemberRepository.existsByName)이 인덱스만 읽는다.
+
+select name, count(*) from member group by name having count(*) > 1;
+
+alter table member add constraint if not exists uk_member_name unique (name);
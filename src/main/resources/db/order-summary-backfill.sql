@@ -0,0 +1,21 @@
+-- order_summary(주문 요약) 채우기 스크립트 (H2)
+--
+-- 1. ddl-auto 가 테이블을 만든 뒤, 요약이 없는 기존 주문에 대해 한 번 실행한다.(다시 실행해도 이미 있는 주문은 건너뛴다.)
+-- 2. 이후로는 OrderService(주문/취소), MemberService(이름 변경), ItemService(이름 변경)가 같은 트랜잭션에서 갱신한다.
+-- 3. 대표상품 = 주문상품 id 가 가장 작은 것 (Order.orderItems 의 첫 번째와 같다.)
+
+insert into order_summary (order_id, member_id, member_name, city, street, zipcode, status, order_date,
+                           item_count, total_price, item_id, item_name, item_price, item_quantity)
+select o.order_id, m.member_id, m.name, d.city, d.street, d.zipcode, o.status, o.order_date,
+       (select count(*) from order_item oi where oi.order_id = o.order_id),
+       (select coalesce(sum(oi.order_price * oi.count), 0) from order_item oi where oi.order_id = o.order_id),
+       f.item_id, i.name, coalesce(f.order_price, 0), coalesce(f.count, 0)
+from orders o
+join member m on m.member_id = o.member_id
+join delivery d on d.delivery_id = o.delivery_id
+left join order_item f on f.order_item_id = (select min(oi.order_item_id) from order_item oi where oi.order_id = o.order_id)
+left join item i on i.item_id = f.item_id
+where not exists (select 1 from order_summary s where s.order_id = o.order_id);
+
+-- 확인 : 요약이 없는 주문 수 (0 이어야 한다.)
+select count(*) from orders o where not exists (select 1 from order_summary s where s.order_id = o.order_id);
@@ -0,0 +1,22 @@
+-- hibernate_sequence(공유 시퀀스, allocationSize 1) -> 엔티티별 시퀀스(pooled-lo) 이전 스크립트 (H2)
+--
+-- 1. 애플리케이션을 내리고 아래를 실행한다.
+-- 2. increment by 는 spring.jpa.properties.jpashop.id.allocation_size 와 같아야 한다.
+-- 3. pooled-lo 는 시퀀스 값부터 (값 + allocation_size - 1) 까지를 id로 쓰므로, 각 테이블의 max(id) + 1 부터 시작하면 된다.
+-- 4. 모든 테이블이 hibernate_sequence 로 id를 받았으므로 id는 테이블끼리도 겹치지 않는다. 확인 후 hibernate_sequence 는 지워도 된다.
+
+create sequence if not exists orders_seq start with 1 increment by 50;
+create sequence if not exists order_item_seq start with 1 increment by 50;
+create sequence if not exists delivery_seq start with 1 increment by 50;
+create sequence if not exists member_seq start with 1 increment by 50;
+create sequence if not exists item_seq start with 1 increment by 50;
+create sequence if not exists category_seq start with 1 increment by 50;
+
+alter sequence orders_seq restart with (select coalesce(max(order_id), 0) + 1 from orders);
+alter sequence order_item_seq restart with (select coalesce(max(order_item_id), 0) + 1 from order_item);
+alter sequence delivery_seq restart with (select coalesce(max(delivery_id), 0) + 1 from delivery);
+alter sequence member_seq restart with (select coalesce(max(member_id), 0) + 1 from member);
+alter sequence item_seq restart with (select coalesce(max(item_id), 0) + 1 from item);
+alter sequence category_seq restart with (select coalesce(max(category_id), 0) + 1 from category);
+
+-- drop sequence hibernate_sequence;
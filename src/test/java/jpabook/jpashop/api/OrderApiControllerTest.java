@@ -0,0 +1,95 @@
+package jpabook.jpashop.api;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.service.ItemService;
+import jpabook.jpashop.service.MemberService;
+import jpabook.jpashop.service.OrderService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.hamcrest.Matchers.notNullValue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 커서(키셋) 페이징 API
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class OrderApiControllerTest {
+
+    @Autowired MockMvc mockMvc;
+    @Autowired OrderService orderService;
+    @Autowired ItemService itemService;
+    @Autowired MemberService memberService;
+
+    @Test
+    public void 잘못된_limit_cursor_는_400() throws Exception {
+        mockMvc.perform(get("/api/v5/orders/cursor").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v6/orders").param("limit", "100000"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v3.1/orders/cursor").param("cursor", "not-a-cursor!"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v7/orders").param("cursor", cursor("abc")))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void V5_커서_페이징() throws Exception {
+        //given
+        Long memberId = createMember();
+        Long itemId = createBook();
+        Long first = orderService.order(memberId, itemId, 1);
+        Long second = orderService.order(memberId, itemId, 2);
+
+        //when, then - 다음 페이지가 있으면 nextCursor, 페이지 주문은 컬렉션까지 채워진다.
+        mockMvc.perform(get("/api/v5/orders/cursor")
+                        .param("cursor", cursor(String.valueOf(first - 1)))
+                        .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(1))
+                .andExpect(jsonPath("$.data[0].orderId").value(first))
+                .andExpect(jsonPath("$.data[0].orderItems[0].count").value(1))
+                .andExpect(jsonPath("$.nextCursor").value(notNullValue()));
+
+        mockMvc.perform(get("/api/v5/orders/cursor")
+                        .param("cursor", cursor(String.valueOf(first)))
+                        .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].orderId").value(second))
+                .andExpect(jsonPath("$.data[0].orderItems[0].count").value(2));
+    }
+
+    private static String cursor(String value) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Long createBook() {
+        Book book = new Book();
+        book.setName("커서 JPA");
+        book.setPrice(10000);
+        book.setStockQuantity(10);
+        itemService.saveItem(book);
+        return book.getId();
+    }
+
+    private Long createMember() {
+        Member member = new Member();
+        member.setName("커서회원" + System.nanoTime());
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        return memberService.join(member);
+    }
+}
@@ -0,0 +1,88 @@
+package jpabook.jpashop.cache;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.service.MemberService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.Assert.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 쓰기가 커밋되어야 무효화되므로 @Transactional 을 붙이지 않는다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class QueryResultCacheTest {
+
+    @Autowired MockMvc mockMvc;
+    @Autowired QueryResultCache queryResultCache;
+    @Autowired MemberService memberService;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    @Test
+    public void 커밋된_쓰기는_캐시를_무효화() throws Exception {
+        //given
+        getMembers();
+        long misses = queryResultCache.getMisses();
+        long hits = queryResultCache.getHits();
+
+        getMembers();
+        assertEquals("두 번째 조회는 캐시에서", hits + 1, queryResultCache.getHits());
+
+        //when
+        String name = "캐시회원" + System.nanoTime();
+        memberService.join(member(name));
+
+        //then
+        mockMvc.perform(get("/api/v2/members"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[?(@.name == '" + name + "')]").exists());
+        assertEquals("커밋 후 조회는 다시 실행", misses + 1, queryResultCache.getMisses());
+    }
+
+    @Test
+    public void 롤백된_쓰기는_캐시를_무효화하지_않음() throws Exception {
+        //given
+        getMembers();
+        long misses = queryResultCache.getMisses();
+        long invalidations = queryResultCache.getInvalidations();
+
+        //when
+        String name = "롤백회원" + System.nanoTime();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            memberService.join(member(name));
+            status.setRollbackOnly();
+        });
+
+        //then
+        mockMvc.perform(get("/api/v2/members"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[?(@.name == '" + name + "')]").doesNotExist());
+        assertEquals("롤백되면 무효화하지 않는다.", invalidations, queryResultCache.getInvalidations());
+        assertEquals("캐시에서 조회", misses, queryResultCache.getMisses());
+    }
+
+    private void getMembers() throws Exception {
+        mockMvc.perform(get("/api/v2/members"))
+                .andExpect(status().isOk());
+    }
+
+    private static Member member(String name) {
+        Member member = new Member();
+        member.setName(name);
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        return member;
+    }
+}
@@ -0,0 +1,97 @@
+package jpabook.jpashop.datasource;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.servlet.http.Cookie;
+
+import static org.junit.Assert.*;
+
+/**
+ * H2 메모리 DB 두 개(primary, replica)로 라우팅만 확인한다.(H2 DATABASE() 는 접속한 DB 이름)
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1",
+        "jpashop.datasource.replica.url=jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1",
+        "jpashop.datasource.read-your-writes-window=2s"
+})
+public class ReplicaRoutingDataSourceTest {
+
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    @After
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    public void 읽기전용_트랜잭션은_replica() throws Exception {
+        assertEquals("REPLICA", database(true));
+    }
+
+    @Test
+    public void 쓰기_트랜잭션은_primary() throws Exception {
+        assertEquals("PRIMARY", database(false));
+    }
+
+    @Test
+    public void 쓰기_후에는_같은_요청의_읽기도_primary() throws Exception {
+        //given
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest(), response));
+
+        //when
+        database(false);
+
+        //then
+        assertEquals("PRIMARY", database(true));
+        assertNotNull("다음 요청을 위한 쿠키가 내려가야 한다.", response.getCookie(ReadYourWrites.COOKIE));
+    }
+
+    @Test
+    public void 쓰기_쿠키가_있으면_primary() throws Exception {
+        //given
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setCookies(new Cookie(ReadYourWrites.COOKIE, String.valueOf(System.currentTimeMillis() + 1000)));
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+        //when
+        String database = database(true);
+
+        //then
+        assertEquals("PRIMARY", database);
+    }
+
+    @Test
+    public void 지난_쿠키는_무시() throws Exception {
+        //given
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setCookies(new Cookie(ReadYourWrites.COOKIE, String.valueOf(System.currentTimeMillis() - 1)));
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+        //when
+        String database = database(true);
+
+        //then
+        assertEquals("REPLICA", database);
+    }
+
+    private String database(boolean readOnly) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setReadOnly(readOnly);
+        return tx.execute(status -> jdbcTemplate.queryForObject("select database()", String.class));
+    }
+}
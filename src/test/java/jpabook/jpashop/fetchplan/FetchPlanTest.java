@@ -0,0 +1,168 @@
+package jpabook.jpashop.fetchplan;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.Order;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.repository.OrderRepository;
+import jpabook.jpashop.repository.OrderSearch;
+import jpabook.jpashop.service.ItemService;
+import jpabook.jpashop.service.MemberService;
+import jpabook.jpashop.service.OrderService;
+import org.hibernate.LazyInitializationException;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.method.HandlerMethod;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * OSIV off 에서 fetch plan 확인
+ * 트랜잭션 밖(컨트롤러, 뷰)에서 연관관계를 건드려야 하므로 @Transactional 을 붙이지 않는다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class FetchPlanTest {
+
+    @Autowired MockMvc mockMvc;
+    @Autowired OrderRepository orderRepository;
+    @Autowired OrderService orderService;
+    @Autowired ItemService itemService;
+    @Autowired MemberService memberService;
+    @Autowired FetchPlanRegistry fetchPlanRegistry;
+
+    @After
+    public void clear() {
+        FetchPlanContext.clear();
+    }
+
+    @Test
+    public void 선언한_연관관계는_트랜잭션_밖에서_사용가능() throws Exception {
+        //given
+        String memberName = createOrder();
+        FetchPlanContext.set(Order.WITH_ITEMS);
+
+        //when
+        List<Order> orders = orderRepository.findAllByString(search(memberName));
+
+        //then
+        Order order = orders.get(0);
+        assertEquals(memberName, order.getMember().getName());
+        assertEquals("서울", order.getDelivery().getAddress().getCity());
+        assertEquals("플랜 JPA", order.getOrderItems().get(0).getItem().getName());
+    }
+
+    @Test(expected = LazyInitializationException.class)
+    public void 선언하지_않은_연관관계는_바로_실패() throws Exception {
+        //given
+        String memberName = createOrder();
+        FetchPlanContext.set(Order.WITH_MEMBER_DELIVERY);
+
+        //when
+        List<Order> orders = orderRepository.findAllByString(search(memberName));
+
+        //then
+        orders.get(0).getOrderItems().size();
+    }
+
+    @Test
+    public void 화면과_API_렌더링() throws Exception {
+        createOrder();
+
+        mockMvc.perform(get("/orders")).andExpect(status().isOk());
+        mockMvc.perform(get("/api/v1/simple-orders")).andExpect(status().isOk());
+        mockMvc.perform(get("/api/v2/orders")).andExpect(status().isOk());
+        mockMvc.perform(get("/api/v3/orders")).andExpect(status().isOk());
+        mockMvc.perform(get("/api/v3/simple-orders")).andExpect(status().isOk());
+        mockMvc.perform(get("/api/v3.1/orders")).andExpect(status().isOk());
+    }
+
+    @Test
+    public void fetch_join_조회도_plan_선언() throws Exception {
+        Map<String, String> plans = fetchPlanRegistry.getPlans();
+
+        assertEquals(Order.WITH_ITEMS, plans.get("OrderApiController.orderV3"));
+        assertEquals(Order.WITH_MEMBER_DELIVERY, plans.get("OrderSimpleApiController.orderV3"));
+    }
+
+    /**
+     * 비동기 처리는 첫 dispatch 에서 afterCompletion 이 호출되지 않는다. -> 같은 스레드의 다음 요청에 plan 이 남으면 안 된다.
+     */
+    @Test
+    public void 비동기_처리가_시작되면_plan_정리() throws Exception {
+        FetchPlanInterceptor interceptor = new FetchPlanInterceptor();
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        HandlerMethod handler = new HandlerMethod(this, FetchPlanTest.class.getMethod("planned"));
+
+        interceptor.preHandle(request, response, handler);
+        assertEquals(Order.WITH_ITEMS, FetchPlanContext.current());
+
+        interceptor.afterConcurrentHandlingStarted(request, response, handler);
+        assertNull(FetchPlanContext.current());
+    }
+
+    @FetchPlan(Order.WITH_ITEMS)
+    public void planned() {
+    }
+
+    @Test
+    public void 샤딩된_상품_재고_렌더링() throws Exception {
+        //given
+        Book book = new Book();
+        book.setName("샤드 JPA");
+        book.setPrice(10000);
+        book.setStockQuantity(10);
+        itemService.saveItem(book);
+
+        //when
+        mockMvc.perform(post("/api/items/" + book.getId() + "/stock-shards")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"shardCount\": 4}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.stockQuantity").value(10));
+
+        //then 재고수량(샤드 합)을 트랜잭션 밖(뷰)에서 읽는다.
+        mockMvc.perform(get("/items")).andExpect(status().isOk());
+        mockMvc.perform(get("/items/" + book.getId() + "/edit")).andExpect(status().isOk());
+    }
+
+    private String createOrder() {
+        Member member = new Member();
+        member.setName("플랜회원" + System.nanoTime());
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        Long memberId = memberService.join(member);
+
+        Book book = new Book();
+        book.setName("플랜 JPA");
+        book.setPrice(10000);
+        book.setStockQuantity(10);
+        itemService.saveItem(book);
+
+        orderService.order(memberId, book.getId(), 1);
+        return member.getName();
+    }
+
+    private static OrderSearch search(String memberName) {
+        OrderSearch orderSearch = new OrderSearch();
+        orderSearch.setMemberName(memberName);
+        return orderSearch;
+    }
+}
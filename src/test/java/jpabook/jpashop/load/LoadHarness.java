@@ -0,0 +1,379 @@
+package jpabook.jpashop.load;
+
+import jpabook.jpashop.JpashopApplication;
+import jpabook.jpashop.seed.DataSeeder;
+import jpabook.jpashop.seed.SeedProperties;
+import jpabook.jpashop.service.MemberNameFilter;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 릴리즈 전 부하 재현 (외부 도구 없이 테스트 소스셋에서 실행)
+ *
+ * - 앱을 임의 포트 + H2 메모리 DB 로 띄우고 회원/상품/주문을 미리 적재한다.(DataSeeder)
+ * - 주문(POST /order), 주문 취소, /api/v3.1/orders 페이지, 회원 가입, 상품 목록을 mix 비율로 섞어서 호출한다.
+ * - 요청은 rate(req/s) 일정 간격으로 예정되고, concurrency 개의 클라이언트가 예정 시각에 보낸다.(open model)
+ *   서버가 밀려서 예정 시각보다 늦게 보낸 만큼도 응답 시간에 넣는다.(coordinated omission 보정)
+ *   보정 전(실제로 보낸 시각 기준) p99 도 같이 출력한다.
+ * - 결과 : 엔드포인트별 처리량, 오류율, 응답 시간 백분위 (report 파일(csv)로 빌드끼리 비교)
+ *
+ * 실행 : ./gradlew loadTest -PloadTest.args="rate=500 concurrency=64 duration=60"
+ */
+public class LoadHarness {
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+
+        try (ConfigurableApplicationContext context = start(options)) {
+            Fixture fixture = Fixture.seed(context, options);
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            HttpClient http = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .followRedirects(HttpClient.Redirect.NEVER) // POST 는 redirect 응답(302)까지만
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+            Workload workload = new Workload("http://localhost:" + port, fixture, options.mix);
+
+            run(http, workload, options, options.warmup); // 워밍업(JIT, 커넥션 풀, 캐시)
+            Map<String, Stats> result = run(http, workload, options, options.duration);
+
+            print(result, options.duration);
+            write(result, options);
+        }
+    }
+
+    private static ConfigurableApplicationContext start(Options options) {
+        return new SpringApplicationBuilder(JpashopApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.datasource.url=jdbc:h2:mem:load;DB_CLOSE_DELAY=-1",
+                        "spring.datasource.username=sa",
+                        "spring.datasource.hikari.maximum-pool-size=" + options.poolSize,
+                        "spring.jpa.hibernate.ddl-auto=create",
+                        "spring.jpa.properties.hibernate.format_sql=false",
+                        "jpashop.reactive.enabled=false",
+                        "logging.level.org.hibernate.SQL=warn")
+                .run();
+    }
+
+    private static Map<String, Stats> run(HttpClient http, Workload workload, Options options,
+                                          Duration duration) throws Exception {
+        Map<String, Stats> stats = new LinkedHashMap<>();
+        workload.endpoints().forEach(endpoint -> stats.put(endpoint, new Stats()));
+
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / options.rate;
+        long total = duration.getSeconds() * options.rate;
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        AtomicLong ticket = new AtomicLong();
+
+        ExecutorService clients = Executors.newFixedThreadPool(options.concurrency);
+        try {
+            List<Future<?>> futures = new ArrayList<>(options.concurrency);
+            for (int i = 0; i < options.concurrency; i++) {
+                futures.add(clients.submit(() -> {
+                    long n;
+                    while ((n = ticket.getAndIncrement()) < total) {
+                        long intended = start + n * intervalNanos;
+                        long wait;
+                        while ((wait = intended - System.nanoTime()) > 0) {
+                            LockSupport.parkNanos(wait);
+                        }
+
+                        Workload.Call call = workload.next();
+                        Stats endpointStats = stats.get(call.endpoint);
+                        long sent = System.nanoTime();
+                        boolean ok;
+                        try {
+                            HttpResponse<Void> response = http.send(call.request, HttpResponse.BodyHandlers.discarding());
+                            ok = response.statusCode() < 400;
+                        } catch (IOException e) {
+                            ok = false;
+                        }
+                        long done = System.nanoTime();
+                        endpointStats.record(ok, done - intended, done - sent);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(duration.getSeconds() + 300, TimeUnit.SECONDS);
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+        return stats;
+    }
+
+    private static void print(Map<String, Stats> result, Duration duration) {
+        System.out.printf("%n%-22s %8s %9s %8s %9s %9s %9s %9s %9s %11s%n",
+                "endpoint", "count", "req/s", "error%", "p50(ms)", "p90(ms)", "p99(ms)", "p999(ms)", "max(ms)", "p99 raw(ms)");
+        result.forEach((endpoint, stats) -> {
+            Histogram h = stats.corrected;
+            System.out.printf("%-22s %8d %9.1f %8.2f %9.1f %9.1f %9.1f %9.1f %9.1f %11.1f%n",
+                    endpoint, stats.count(), stats.count() / (double) duration.getSeconds(), stats.errorRate() * 100,
+                    millis(h.getValueAtPercentile(50)), millis(h.getValueAtPercentile(90)),
+                    millis(h.getValueAtPercentile(99)), millis(h.getValueAtPercentile(99.9)),
+                    millis(h.getMaxValue()), millis(stats.raw.getValueAtPercentile(99)));
+        });
+    }
+
+    /**
+     * 빌드 비교용 csv (같은 옵션으로 돌린 결과끼리 비교)
+     */
+    private static void write(Map<String, Stats> result, Options options) throws IOException {
+        Path path = Paths.get(options.report);
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(path))) {
+            out.println("endpoint,count,throughput,error_rate,p50_ms,p90_ms,p99_ms,p999_ms,max_ms,p99_raw_ms");
+            result.forEach((endpoint, stats) -> {
+                Histogram h = stats.corrected;
+                out.printf("%s,%d,%.1f,%.4f,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f%n",
+                        endpoint, stats.count(), stats.count() / (double) options.duration.getSeconds(), stats.errorRate(),
+                        millis(h.getValueAtPercentile(50)), millis(h.getValueAtPercentile(90)),
+                        millis(h.getValueAtPercentile(99)), millis(h.getValueAtPercentile(99.9)),
+                        millis(h.getMaxValue()), millis(stats.raw.getValueAtPercentile(99)));
+            });
+        }
+        System.out.println("결과 : " + path.toAbsolutePath());
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    /**
+     * 엔드포인트별 응답 시간(us) - corrected : 예정 시각 기준, raw : 실제로 보낸 시각 기준
+     */
+    private static final class Stats {
+        private static final long HIGHEST_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+        final Histogram corrected = new ConcurrentHistogram(HIGHEST_MICROS, 3);
+        final Histogram raw = new ConcurrentHistogram(HIGHEST_MICROS, 3);
+        final LongAdder errors = new LongAdder();
+
+        void record(boolean ok, long correctedNanos, long rawNanos) {
+            if (!ok) {
+                errors.increment();
+            }
+            corrected.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(correctedNanos), HIGHEST_MICROS));
+            raw.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(rawNanos), HIGHEST_MICROS));
+        }
+
+        long count() {
+            return corrected.getTotalCount();
+        }
+
+        double errorRate() {
+            return count() == 0 ? 0 : errors.sum() / (double) count();
+        }
+    }
+
+    /**
+     * 부하 전에 적재하는 데이터 - id 는 DataSeeder.ID_BASE 부터 연속
+     */
+    static final class Fixture {
+        final int members;
+        final int items;
+        final int orders;
+
+        private Fixture(int members, int items, int orders) {
+            this.members = members;
+            this.items = items;
+            this.orders = orders;
+        }
+
+        static Fixture seed(ConfigurableApplicationContext context, Options options) {
+            SeedProperties properties = new SeedProperties();
+            properties.setMembers(options.members);
+            properties.setItems(options.items);
+            properties.setOrders(options.orders);
+            properties.setHotOrderRatio(options.hotOrderRatio);
+            new DataSeeder(context.getBean(DataSource.class)).seed(properties);
+            context.getBean(MemberNameFilter.class).rebuild(); // jdbc 로 넣은 회원 반영
+            return new Fixture(options.members, options.items, options.orders);
+        }
+
+        long randomMember(ThreadLocalRandom random) {
+            return DataSeeder.ID_BASE + random.nextInt(members);
+        }
+
+        long randomItem(ThreadLocalRandom random) {
+            return DataSeeder.ID_BASE + random.nextInt(items);
+        }
+
+        long randomOrder(ThreadLocalRandom random) {
+            return DataSeeder.ID_BASE + random.nextInt(orders);
+        }
+
+        int orderPages() {
+            return Math.max(1, orders / Workload.PAGE_SIZE);
+        }
+    }
+
+    /**
+     * 요청 mix - 비율대로 다음 요청을 고른다.
+     */
+    static final class Workload {
+        static final int PAGE_SIZE = 20;
+        static final List<String> ENDPOINTS = List.of("order", "cancel", "orders-page", "signup", "items");
+
+        private final String baseUrl;
+        private final Fixture fixture;
+        private final String[] endpoints;
+        private final int[] cumulativeWeights;
+        private final AtomicLong cancels = new AtomicLong();
+        private final AtomicLong signups = new AtomicLong();
+
+        Workload(String baseUrl, Fixture fixture, Map<String, Integer> mix) {
+            this.baseUrl = baseUrl;
+            this.fixture = fixture;
+            this.endpoints = mix.keySet().toArray(new String[0]);
+            this.cumulativeWeights = new int[endpoints.length];
+            int sum = 0;
+            for (int i = 0; i < endpoints.length; i++) {
+                if (!ENDPOINTS.contains(endpoints[i])) {
+                    throw new IllegalArgumentException("알 수 없는 엔드포인트 : " + endpoints[i] + " (" + ENDPOINTS + ")");
+                }
+                sum += mix.get(endpoints[i]);
+                cumulativeWeights[i] = sum;
+            }
+        }
+
+        List<String> endpoints() {
+            return List.of(endpoints);
+        }
+
+        Call next() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int pick = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+            int i = 0;
+            while (pick >= cumulativeWeights[i]) {
+                i++;
+            }
+            return new Call(endpoints[i], request(endpoints[i], random));
+        }
+
+        private HttpRequest request(String endpoint, ThreadLocalRandom random) {
+            switch (endpoint) {
+                case "order":
+                    return post("/order", "memberId=" + fixture.randomMember(random)
+                            + "&itemId=" + fixture.randomItem(random) + "&count=" + (1 + random.nextInt(3)));
+                case "cancel": {
+                    // 적재한 주문을 앞에서부터 한 번씩 취소, 다 취소하면 무작위
+                    long n = cancels.getAndIncrement();
+                    long orderId = n < fixture.orders ? DataSeeder.ID_BASE + n : fixture.randomOrder(random);
+                    return post("/orders/" + orderId + "/cancel", "");
+                }
+                case "orders-page":
+                    return get("/api/v3.1/orders?offset=" + random.nextInt(fixture.orderPages()) * PAGE_SIZE + "&limit=" + PAGE_SIZE);
+                case "signup": {
+                    long n = signups.incrementAndGet();
+                    return post("/members/new", "name=signup-" + System.nanoTime() + "-" + n + "&city=city&street=street&zipcode=10000");
+                }
+                case "items":
+                    return get("/items");
+                default:
+                    throw new IllegalArgumentException("알 수 없는 엔드포인트 : " + endpoint);
+            }
+        }
+
+        private HttpRequest get(String path) {
+            return HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(Duration.ofSeconds(60)).GET().build();
+        }
+
+        private HttpRequest post(String path, String form) {
+            return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .timeout(Duration.ofSeconds(60))
+                    .header("Content-Type", "application/x-www-form-urlencoded")
+                    .POST(HttpRequest.BodyPublishers.ofString(form))
+                    .build();
+        }
+
+        static final class Call {
+            final String endpoint;
+            final HttpRequest request;
+
+            Call(String endpoint, HttpRequest request) {
+                this.endpoint = endpoint;
+                this.request = request;
+            }
+        }
+    }
+
+    static final class Options {
+        int rate = 200;
+        int concurrency = 64;
+        Duration duration = Duration.ofSeconds(60);
+        Duration warmup = Duration.ofSeconds(10);
+        int poolSize = 10;
+        int members = 1000;
+        int items = 100;
+        int orders = 10000;
+        double hotOrderRatio = 0.5; // 주문상품의 절반이 상위 1% 상품 (재고 row 경합)
+        Map<String, Integer> mix = parseMix("orders-page:40,order:25,items:15,signup:10,cancel:10");
+        String report = "build/reports/load/load.csv";
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (String arg : args) {
+                String[] kv = arg.split("=", 2);
+                switch (kv[0]) {
+                    case "rate": options.rate = Integer.parseInt(kv[1]); break;
+                    case "concurrency": options.concurrency = Integer.parseInt(kv[1]); break;
+                    case "duration": options.duration = Duration.ofSeconds(Long.parseLong(kv[1])); break;
+                    case "warmup": options.warmup = Duration.ofSeconds(Long.parseLong(kv[1])); break;
+                    case "pool-size": options.poolSize = Integer.parseInt(kv[1]); break;
+                    case "members": options.members = Integer.parseInt(kv[1]); break;
+                    case "items": options.items = Integer.parseInt(kv[1]); break;
+                    case "orders": options.orders = Integer.parseInt(kv[1]); break;
+                    case "hot-order-ratio": options.hotOrderRatio = Double.parseDouble(kv[1]); break;
+                    case "mix": options.mix = parseMix(kv[1]); break;
+                    case "report": options.report = kv[1]; break;
+                    default: throw new IllegalArgumentException("알 수 없는 옵션 : " + arg);
+                }
+            }
+            return options;
+        }
+
+        /**
+         * orders-page:40,order:25 ... (엔드포인트:비율)
+         */
+        static Map<String, Integer> parseMix(String value) {
+            Map<String, Integer> mix = new LinkedHashMap<>();
+            for (String entry : value.split(",")) {
+                String[] kv = entry.split(":", 2);
+                mix.put(kv[0].trim(), Integer.parseInt(kv[1].trim()));
+            }
+            return mix;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package jpabook.jpashop.monitor;
+
+import org.junit.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import java.lang.reflect.Method;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class LatencyFilterTest {
+
+    @Test
+    public void 비동기_timeout_도_한번만_기록() throws Exception {
+        //given
+        LatencyMonitor latencyMonitor = mock(LatencyMonitor.class);
+        LatencyFilter filter = new LatencyFilter(latencyMonitor);
+        Method handler = LatencyFilterTest.class.getMethod("handler");
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/async");
+        request.setAsyncSupported(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, (req, res) -> {
+            req.setAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE, new HandlerMethod(this, handler));
+            req.startAsync(req, res);
+        });
+        verify(latencyMonitor, never()).record(any(), anyLong());
+
+        //when - timeout 뒤에 컨테이너가 complete 한다
+        MockAsyncContext asyncContext = (MockAsyncContext) request.getAsyncContext();
+        for (AsyncListener listener : asyncContext.getListeners()) {
+            listener.onTimeout(new AsyncEvent(asyncContext));
+        }
+        asyncContext.complete();
+
+        //then
+        verify(latencyMonitor, times(1)).record(eq(handler), anyLong());
+    }
+
+    public void handler() {
+    }
+}
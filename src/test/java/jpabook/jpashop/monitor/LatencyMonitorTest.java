@@ -0,0 +1,50 @@
+package jpabook.jpashop.monitor;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.Assert.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class LatencyMonitorTest {
+
+    @Autowired MockMvc mockMvc;
+    @Autowired LatencyMonitor latencyMonitor;
+
+    @Test
+    public void 핸들러별_응답시간_기록() throws Exception {
+        //when
+        mockMvc.perform(get("/api/v2/simple-orders")).andExpect(status().isOk());
+        mockMvc.perform(get("/api/v2/simple-orders")).andExpect(status().isOk());
+        mockMvc.perform(get("/internal/latency")).andExpect(status().isOk());
+        latencyMonitor.rotate();
+
+        //then
+        LatencyMonitor.HandlerSnapshot snapshot = find("OrderSimpleApiController.orderV2");
+        assertTrue(snapshot.getWindow().getCount() >= 2);
+        assertTrue(snapshot.getWindow().getMax() > 0);
+        assertNull("모니터링 API 는 기록하지 않는다.", findOrNull("MonitorController.latency"));
+    }
+
+    private LatencyMonitor.HandlerSnapshot find(String handler) {
+        LatencyMonitor.HandlerSnapshot snapshot = findOrNull(handler);
+        assertNotNull(handler, snapshot);
+        return snapshot;
+    }
+
+    private LatencyMonitor.HandlerSnapshot findOrNull(String handler) {
+        return latencyMonitor.report().getHandlers().stream()
+                .filter(s -> s.getHandler().equals(handler))
+                .findFirst()
+                .orElse(null);
+    }
+}
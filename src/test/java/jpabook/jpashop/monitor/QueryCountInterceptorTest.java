@@ -0,0 +1,52 @@
+package jpabook.jpashop.monitor;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+import static org.junit.Assert.*;
+
+public class QueryCountInterceptorTest {
+
+    private final QueryCountInterceptor interceptor = new QueryCountInterceptor(5);
+    private final MockHttpServletRequest request = new MockHttpServletRequest();
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    @After
+    public void tearDown() {
+        QueryContext.end();
+    }
+
+    @Test
+    public void 요청이_끝나면_컨텍스트_정리() throws Exception {
+        HandlerMethod handler = handler();
+        interceptor.preHandle(request, response, handler);
+        assertEquals("QueryCountInterceptorTest.handle", QueryContext.current().getHandler());
+
+        interceptor.afterCompletion(request, response, handler, null);
+
+        assertNull(QueryContext.current());
+    }
+
+    /**
+     * 비동기 처리는 첫 dispatch 에서 afterCompletion 이 호출되지 않는다. -> 톰캣 스레드에 남으면 다음 요청에 섞인다.
+     */
+    @Test
+    public void 비동기_처리가_시작되면_컨텍스트_정리() throws Exception {
+        HandlerMethod handler = handler();
+        interceptor.preHandle(request, response, handler);
+
+        interceptor.afterConcurrentHandlingStarted(request, response, handler);
+
+        assertNull(QueryContext.current());
+    }
+
+    private HandlerMethod handler() throws NoSuchMethodException {
+        return new HandlerMethod(this, QueryCountInterceptorTest.class.getMethod("handle"));
+    }
+
+    public void handle() {
+    }
+}
@@ -0,0 +1,97 @@
+package jpabook.jpashop.repository;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+
+public class ParentIdChunkLoaderTest {
+
+    private ParentIdChunkLoader loader;
+
+    @After
+    public void tearDown() {
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+        if (loader != null) {
+            loader.destroy();
+        }
+    }
+
+    @Test
+    public void 패딩() throws Exception {
+        assertEquals(Arrays.asList(1L), ParentIdChunkLoader.pad(Arrays.asList(1L)));
+        assertEquals(Arrays.asList(1L, 2L), ParentIdChunkLoader.pad(Arrays.asList(1L, 2L)));
+        assertEquals("마지막 id 반복", Arrays.asList(1L, 2L, 3L, 3L), ParentIdChunkLoader.pad(Arrays.asList(1L, 2L, 3L)));
+        assertEquals(8, ParentIdChunkLoader.pad(ids(1, 5)).size());
+        assertEquals(8, ParentIdChunkLoader.pad(ids(1, 8)).size());
+    }
+
+    @Test
+    public void chunk_분할() throws Exception {
+        loader = new ParentIdChunkLoader(mock(PlatformTransactionManager.class), 4, 1, Duration.ofSeconds(1));
+
+        List<List<Long>> chunks = loader.chunks(ids(1, 10));
+
+        assertEquals(3, chunks.size());
+        assertEquals(ids(1, 4), chunks.get(0));
+        assertEquals(ids(5, 8), chunks.get(1));
+        assertEquals(Arrays.asList(9L, 10L), chunks.get(2));
+        assertTrue(loader.chunks(Collections.emptyList()).isEmpty());
+    }
+
+    @Test
+    public void chunk_중복제거() throws Exception {
+        loader = new ParentIdChunkLoader(mock(PlatformTransactionManager.class), 4, 1, Duration.ofSeconds(1));
+
+        List<List<Long>> chunks = loader.chunks(Arrays.asList(3L, 1L, 3L, 2L, 1L));
+
+        assertEquals(1, chunks.size());
+        assertEquals(Arrays.asList(3L, 1L, 2L, 2L), chunks.get(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void chunk_크기는_2의_거듭제곱() throws Exception {
+        new ParentIdChunkLoader(mock(PlatformTransactionManager.class), 10, 1, Duration.ofSeconds(1));
+    }
+
+    @Test
+    public void 트랜잭션_안에서는_호출한_스레드로_조회() throws Exception {
+        loader = new ParentIdChunkLoader(mock(PlatformTransactionManager.class), 4, 4, Duration.ofSeconds(1));
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+
+        Set<String> threads = Collections.synchronizedSet(new HashSet<>());
+        List<Long> result = loader.load(ids(1, 20), chunk -> {
+            threads.add(Thread.currentThread().getName());
+            return chunk;
+        });
+
+        assertEquals(Collections.singleton(Thread.currentThread().getName()), threads);
+        assertEquals(ids(1, 20), result);
+    }
+
+    @Test
+    public void 트랜잭션_밖에서는_동시_조회() throws Exception {
+        loader = new ParentIdChunkLoader(mock(PlatformTransactionManager.class), 4, 4, Duration.ofSeconds(1));
+
+        Set<String> threads = Collections.synchronizedSet(new HashSet<>());
+        List<Long> result = loader.load(ids(1, 20), chunk -> {
+            threads.add(Thread.currentThread().getName());
+            return chunk;
+        });
+
+        assertTrue(threads.stream().anyMatch(name -> name.startsWith("in-loader-")));
+        assertEquals("chunk 순서대로 합친다", ids(1, 20), result);
+    }
+
+    private static List<Long> ids(long from, long to) {
+        return LongStream.rangeClosed(from, to).boxed().collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,88 @@
+package jpabook.jpashop.repository.order.query;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.OrderStatus;
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.junit.Assert.*;
+
+public class OrderFlatIteratorTest {
+
+    @Test
+    public void 주문id가_바뀌는_지점에서_끊는다() throws Exception {
+        //given
+        List<OrderFlatDto> rows = Arrays.asList(
+                row(1L, "JPA1"), row(1L, "JPA2"),
+                row(2L, "SPRING1"),
+                row(3L, "JPA1"), row(3L, "SPRING1"), row(3L, "SPRING2"));
+
+        //when
+        List<OrderQueryDto> orders = toList(new OrderFlatIterator(rows.iterator()));
+
+        //then
+        assertEquals(3, orders.size());
+        assertOrder(orders.get(0), 1L, "JPA1", "JPA2");
+        assertOrder(orders.get(1), 2L, "SPRING1");
+        assertOrder("마지막 주문도 빠짐없이", orders.get(2), 3L, "JPA1", "SPRING1", "SPRING2");
+    }
+
+    @Test
+    public void 주문정보는_첫_row에서() throws Exception {
+        OrderQueryDto order = new OrderFlatIterator(Arrays.asList(row(1L, "JPA1"), row(1L, "JPA2")).iterator()).next();
+
+        assertEquals("userA", order.getName());
+        assertEquals(OrderStatus.ORDER, order.getOrderStatus());
+        assertEquals("서울", order.getAddress().getCity());
+        assertEquals(10000, order.getOrderItems().get(0).getOrderPrice());
+        assertEquals(2, order.getOrderItems().get(0).getCount());
+    }
+
+    @Test
+    public void 주문_하나() throws Exception {
+        OrderFlatIterator orders = new OrderFlatIterator(Collections.singletonList(row(1L, "JPA1")).iterator());
+
+        assertTrue(orders.hasNext());
+        assertOrder(orders.next(), 1L, "JPA1");
+        assertFalse(orders.hasNext());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void 빈_결과() throws Exception {
+        OrderFlatIterator orders = new OrderFlatIterator(Collections.<OrderFlatDto>emptyIterator());
+
+        assertFalse(orders.hasNext());
+        orders.next();
+    }
+
+    private static OrderFlatDto row(Long orderId, String itemName) {
+        return new OrderFlatDto(orderId, "userA", LocalDateTime.of(2021, 1, 1, 0, 0), OrderStatus.ORDER,
+                new Address("서울", "1", "1111"), itemName, 10000, 2);
+    }
+
+    private static List<OrderQueryDto> toList(OrderFlatIterator iterator) {
+        List<OrderQueryDto> result = new ArrayList<>();
+        iterator.forEachRemaining(result::add);
+        return result;
+    }
+
+    private static void assertOrder(OrderQueryDto order, Long orderId, String... itemNames) {
+        assertOrder(null, order, orderId, itemNames);
+    }
+
+    private static void assertOrder(String message, OrderQueryDto order, Long orderId, String... itemNames) {
+        assertEquals(message, orderId, order.getOrderId());
+        List<String> actual = new ArrayList<>();
+        order.getOrderItems().forEach(item -> {
+            assertEquals(message, orderId, item.getOrderId());
+            actual.add(item.getItemName());
+        });
+        assertEquals(message, Arrays.asList(itemNames), actual);
+    }
+}
@@ -0,0 +1,141 @@
+package jpabook.jpashop.repository.order.query;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.repository.ParentIdChunkLoader;
+import jpabook.jpashop.service.ItemService;
+import jpabook.jpashop.service.MemberService;
+import jpabook.jpashop.service.OrderCommand;
+import jpabook.jpashop.service.OrderService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * V5(/api/v5/orders) 컬렉션 chunk 동시 조회 확인
+ *
+ * chunk 조회가 in-loader 스레드에서 PARALLELISM 개가 모두 모일 때까지 기다린다.
+ * 트랜잭션 안에서 차례대로 조회하면 아무도 오지 않고, 스레드 하나로 차례대로 조회하면 첫 chunk 가 timeout 된다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class OrderQueryParallelLoadTest {
+
+    private static final int CHUNK_SIZE = 4;
+    private static final int PARALLELISM = 4;
+
+    @Autowired MockMvc mockMvc;
+    @Autowired PlatformTransactionManager transactionManager;
+    @Autowired OrderService orderService;
+    @Autowired ItemService itemService;
+    @Autowired MemberService memberService;
+
+    @MockBean ParentIdChunkLoader parentIdChunkLoader;
+
+    private ParentIdChunkLoader loader;
+    private final CountDownLatch arrived = new CountDownLatch(PARALLELISM);
+    private final AtomicBoolean timedOut = new AtomicBoolean();
+
+    @Before
+    public void setUp() {
+        loader = new ParentIdChunkLoader(transactionManager, CHUNK_SIZE, PARALLELISM, Duration.ofSeconds(10));
+        when(parentIdChunkLoader.readOnly(any())).thenAnswer(inv -> loader.readOnly(inv.getArgument(0)));
+        when(parentIdChunkLoader.loadGrouped(anyCollection(), any(), any())).thenAnswer(this::loadGrouped);
+    }
+
+    @After
+    public void tearDown() {
+        loader.destroy();
+    }
+
+    @Test
+    public void 컬렉션_chunk_동시_조회() throws Exception {
+        //given - chunk 가 PARALLELISM 개 이상 나오도록
+        Long memberId = createMember();
+        Long itemId = createBook(CHUNK_SIZE * PARALLELISM);
+        List<OrderCommand> commands = new ArrayList<>();
+        for (int i = 0; i < CHUNK_SIZE * PARALLELISM; i++) {
+            commands.add(new OrderCommand(memberId, Collections.singletonList(new OrderCommand.Line(itemId, 1))));
+        }
+        orderService.orderAll(commands);
+
+        //when
+        mockMvc.perform(get("/api/v5/orders"))
+                .andExpect(status().isOk());
+
+        //then
+        assertEquals("chunk 들이 in-loader 스레드에서 동시에 조회되어야 한다.", 0, arrived.getCount());
+        assertFalse("chunk 들이 차례대로 조회되었다.", timedOut.get());
+    }
+
+    private <T> Map<Long, List<T>> loadGrouped(InvocationOnMock invocation) {
+        Collection<Long> parentIds = invocation.getArgument(0);
+        Function<List<Long>, List<T>> query = invocation.getArgument(1);
+        Function<T, Long> parentIdOf = invocation.getArgument(2);
+
+        return loader.loadGrouped(parentIds, chunk -> {
+            awaitOtherChunks();
+            return query.apply(chunk);
+        }, parentIdOf);
+    }
+
+    private void awaitOtherChunks() {
+        if (!Thread.currentThread().getName().startsWith("in-loader-")) {
+            return;
+        }
+        arrived.countDown();
+        try {
+            if (!arrived.await(5, TimeUnit.SECONDS)) {
+                timedOut.set(true);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Long createBook(int stockQuantity) {
+        Book book = new Book();
+        book.setName("동시조회 JPA");
+        book.setPrice(10000);
+        book.setStockQuantity(stockQuantity);
+        itemService.saveItem(book);
+        return book.getId();
+    }
+
+    private Long createMember() {
+        Member member = new Member();
+        member.setName("동시조회회원" + System.nanoTime());
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        return memberService.join(member);
+    }
+}
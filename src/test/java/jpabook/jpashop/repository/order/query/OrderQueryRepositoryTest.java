@@ -0,0 +1,81 @@
+package jpabook.jpashop.repository.order.query;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.service.ItemService;
+import jpabook.jpashop.service.MemberService;
+import jpabook.jpashop.service.OrderCommand;
+import jpabook.jpashop.service.OrderService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@Transactional
+public class OrderQueryRepositoryTest {
+
+    @Autowired OrderQueryRepository orderQueryRepository;
+    @Autowired OrderService orderService;
+    @Autowired ItemService itemService;
+    @Autowired MemberService memberService;
+
+    @Test
+    public void 플랫조회_주문_단위로_limit() throws Exception {
+        //given - 주문상품이 2개씩인 주문 3건
+        Long memberId = createMember();
+        Long bookId1 = createBook("플랫 JPA1");
+        Long bookId2 = createBook("플랫 JPA2");
+        List<Long> orderIds = orderService.orderAll(Arrays.asList(
+                orderOf(memberId, bookId1, bookId2),
+                orderOf(memberId, bookId1, bookId2),
+                orderOf(memberId, bookId1, bookId2)));
+
+        //when
+        List<OrderQueryDto> firstPage = orderQueryRepository.findAllByDto_flat(orderIds.get(0) - 1, 2);
+        List<OrderQueryDto> nextPage = orderQueryRepository.findAllByDto_flat(firstPage.get(1).getOrderId(), 2);
+
+        //then
+        assertEquals("limit 은 row 수가 아니라 주문 수", 2, firstPage.size());
+        assertEquals(orderIds.get(0), firstPage.get(0).getOrderId());
+        assertEquals(orderIds.get(1), firstPage.get(1).getOrderId());
+        for (OrderQueryDto order : firstPage) {
+            assertEquals("주문 중간에서 잘리면 안 된다.", 2, order.getOrderItems().size());
+        }
+
+        assertEquals("다음 페이지는 이어지는 주문부터", orderIds.get(2), nextPage.get(0).getOrderId());
+        assertEquals(2, nextPage.get(0).getOrderItems().size());
+    }
+
+    private static OrderCommand orderOf(Long memberId, Long... itemIds) {
+        return new OrderCommand(memberId, Arrays.stream(itemIds)
+                .map(itemId -> new OrderCommand.Line(itemId, 1))
+                .collect(Collectors.toList()));
+    }
+
+    private Long createBook(String name) {
+        Book book = new Book();
+        book.setName(name);
+        book.setPrice(10000);
+        book.setStockQuantity(10);
+        itemService.saveItem(book);
+        return book.getId();
+    }
+
+    private Long createMember() {
+        Member member = new Member();
+        member.setName("플랫회원" + System.nanoTime());
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        return memberService.join(member);
+    }
+}
@@ -0,0 +1,80 @@
+package jpabook.jpashop.repository.order.reactive;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.repository.order.query.OrderQueryDto;
+import jpabook.jpashop.repository.order.simplequery.OrderSimpleQueryDto;
+import jpabook.jpashop.service.ItemService;
+import jpabook.jpashop.service.MemberService;
+import jpabook.jpashop.service.OrderService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * R2DBC 는 JPA 와 다른 커넥션이라 커밋된 데이터만 보인다. -> @Transactional 을 붙이지 않는다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class OrderReactiveQueryRepositoryTest {
+
+    @Autowired OrderReactiveQueryRepository orderReactiveQueryRepository;
+    @Autowired OrderService orderService;
+    @Autowired ItemService itemService;
+    @Autowired MemberService memberService;
+
+    @Test
+    public void 주문_조회() throws Exception {
+        //given
+        Long memberId = createMember();
+        Long itemId = createBook();
+        Long orderId = orderService.order(memberId, itemId, 3);
+
+        //when
+        List<OrderSimpleQueryDto> simpleOrders = orderReactiveQueryRepository.findOrderDtos(orderId - 1)
+                .collectList().block(Duration.ofSeconds(10));
+        List<OrderQueryDto> orders = orderReactiveQueryRepository.findAllByDto_optimization(orderId - 1)
+                .collectList().block(Duration.ofSeconds(10));
+
+        //then
+        assertEquals(orderId, simpleOrders.get(0).getOrderId());
+        assertEquals("서울", simpleOrders.get(0).getAddress().getCity());
+
+        assertEquals(orderId, orders.get(0).getOrderId());
+        assertEquals("주문상품도 같이 채워져야 한다.", 1, orders.get(0).getOrderItems().size());
+        assertEquals(3, orders.get(0).getOrderItems().get(0).getCount());
+    }
+
+    @Test
+    public void 롱폴링_새주문이_없으면_빈결과() throws Exception {
+        List<OrderSimpleQueryDto> result = orderReactiveQueryRepository
+                .waitForOrderDtos(Long.MAX_VALUE - 1, 10, Duration.ofMillis(300))
+                .block(Duration.ofSeconds(10));
+
+        assertTrue(result.isEmpty());
+    }
+
+    private Long createBook() {
+        Book book = new Book();
+        book.setName("리액티브 JPA");
+        book.setPrice(10000);
+        book.setStockQuantity(10);
+        itemService.saveItem(book);
+        return book.getId();
+    }
+
+    private Long createMember() {
+        Member member = new Member();
+        member.setName("리액티브회원" + System.nanoTime());
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        return memberService.join(member);
+    }
+}
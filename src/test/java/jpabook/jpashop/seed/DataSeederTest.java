@@ -0,0 +1,97 @@
+package jpabook.jpashop.seed;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * DataSeeder 는 자기 커넥션으로 커밋하므로 @Transactional 로 되돌릴 수 없다. -> 테스트마다 직접 지운다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class DataSeederTest {
+
+    @Autowired DataSource dataSource;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    @After
+    public void clear() {
+        for (String table : List.of("order_summary", "order_item", "orders", "delivery", "item", "member")) {
+            String id = table.equals("orders") || table.equals("order_summary") ? "order_id" : table + "_id";
+            jdbcTemplate.update("delete from " + table + " where " + id + " >= ?", DataSeeder.ID_BASE);
+        }
+    }
+
+    @Test
+    public void 같은_seed면_병렬도_chunk크기_적재방식과_상관없이_같은_데이터() throws Exception {
+        //given
+        SeedProperties batch = properties(SeedProperties.Mode.BATCH, 4, 64);
+        SeedProperties csv = properties(SeedProperties.Mode.CSV, 2, 100);
+
+        //when
+        SeedResult result = new DataSeeder(dataSource).seed(batch);
+        List<Map<String, Object>> orders = orders();
+        List<Map<String, Object>> orderItems = orderItems();
+        clear();
+        new DataSeeder(dataSource).seed(csv);
+
+        //then
+        assertEquals(300, orders.size());
+        assertEquals(result.getOrderItems(), orderItems.size());
+        assertTrue(result.getOrderItems() >= 300 && result.getOrderItems() <= 900);
+        assertEquals(orders, orders());
+        assertEquals(orderItems, orderItems());
+        assertTrue(new DataSeeder(dataSource).isSeeded());
+    }
+
+    @Test
+    public void 인기상품_비율() throws Exception {
+        //given
+        SeedProperties properties = properties(SeedProperties.Mode.BATCH, 4, 64);
+        properties.setHotItemRatio(0.1);
+        properties.setHotOrderRatio(0.8);
+
+        //when
+        SeedResult result = new DataSeeder(dataSource).seed(properties);
+
+        //then 상위 10%(2개) 상품이 주문상품의 80% 이상 (나머지 20% 중에서도 일부는 상위 상품)
+        Integer hot = jdbcTemplate.queryForObject(
+                "select count(*) from order_item where order_item_id >= ? and item_id < ?",
+                Integer.class, DataSeeder.ID_BASE, DataSeeder.ID_BASE + 2);
+        assertTrue(hot > result.getOrderItems() * 0.7);
+    }
+
+    private SeedProperties properties(SeedProperties.Mode mode, int parallelism, int chunkSize) {
+        SeedProperties properties = new SeedProperties();
+        properties.setMembers(50);
+        properties.setItems(20);
+        properties.setOrders(300);
+        properties.setMode(mode);
+        properties.setParallelism(parallelism);
+        properties.setChunkSize(chunkSize);
+        return properties;
+    }
+
+    private List<Map<String, Object>> orders() {
+        return jdbcTemplate.queryForList(
+                "select o.order_id, o.member_id, o.order_date, o.status, d.city, d.street, d.zipcode" +
+                        " from orders o join delivery d on d.delivery_id = o.delivery_id" +
+                        " where o.order_id >= ? order by o.order_id", DataSeeder.ID_BASE);
+    }
+
+    private List<Map<String, Object>> orderItems() {
+        return jdbcTemplate.queryForList(
+                "select order_item_id, order_id, item_id, order_price, count from order_item" +
+                        " where order_item_id >= ? order by order_item_id", DataSeeder.ID_BASE);
+    }
+}
@@ -0,0 +1,106 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.cache.QueryResultCache;
+import jpabook.jpashop.repository.ItemRepository;
+import jpabook.jpashop.repository.MemberRepository;
+import jpabook.jpashop.repository.order.query.OrderQueryRepository;
+import jpabook.jpashop.service.DashboardService.Section;
+import jpabook.jpashop.service.DashboardService.Status;
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.stubbing.Answer;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 조회마다 걸리는 시간을 mock 으로 정해서 동시 실행, deadline, executor 포화를 확인한다.
+ */
+public class DashboardServiceTest {
+
+    private final MemberRepository memberRepository = mock(MemberRepository.class);
+    private final ItemRepository itemRepository = mock(ItemRepository.class);
+    private final OrderQueryRepository orderQueryRepository = mock(OrderQueryRepository.class);
+
+    private DashboardService dashboardService;
+
+    @After
+    public void tearDown() {
+        dashboardService.destroy();
+    }
+
+    @Test
+    public void 조회는_동시에_실행() throws Exception {
+        //given - 셋 다 300ms
+        dashboardService = dashboardService(Duration.ofSeconds(2), 3, 10);
+        when(memberRepository.findAll()).thenAnswer(slow(300));
+        when(orderQueryRepository.findAllByDto_optimization()).thenAnswer(slow(300));
+        when(itemRepository.findAll()).thenAnswer(slow(300));
+
+        //when
+        long startNanos = System.nanoTime();
+        Map<String, Section> sections = dashboardService.load();
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+
+        //then
+        sections.forEach((name, section) -> assertEquals(name, Status.OK, section.getStatus()));
+        assertTrue("가장 느린 조회(300ms)만큼 걸려야 한다.(합은 900ms) : " + elapsedMillis, elapsedMillis < 600);
+    }
+
+    @Test
+    public void deadline_이_지나면_끝난_것만() throws Exception {
+        //given - 주문 목록만 deadline(500ms) 보다 느리다.
+        dashboardService = dashboardService(Duration.ofMillis(500), 3, 10);
+        when(memberRepository.findAll()).thenAnswer(slow(100));
+        when(orderQueryRepository.findAllByDto_optimization()).thenAnswer(slow(3000));
+        when(itemRepository.findAll()).thenAnswer(slow(100));
+
+        //when
+        long startNanos = System.nanoTime();
+        Map<String, Section> sections = dashboardService.load();
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+
+        //then
+        assertEquals(Status.OK, sections.get("members").getStatus());
+        assertEquals(Status.TIMEOUT, sections.get("orders").getStatus());
+        assertNull(sections.get("orders").getData());
+        assertEquals(Status.OK, sections.get("items").getStatus());
+        assertTrue("느린 조회를 기다리지 않는다. : " + elapsedMillis, elapsedMillis < 1500);
+    }
+
+    @Test
+    public void executor_가_가득차면_REJECTED() throws Exception {
+        //given - 스레드 1개, 큐 1개 -> 세 번째 조회는 들어갈 자리가 없다.
+        dashboardService = dashboardService(Duration.ofSeconds(2), 1, 1);
+        when(memberRepository.findAll()).thenAnswer(slow(200));
+        when(orderQueryRepository.findAllByDto_optimization()).thenAnswer(slow(0));
+        when(itemRepository.findAll()).thenAnswer(slow(0));
+
+        //when
+        Map<String, Section> sections = dashboardService.load();
+
+        //then
+        assertEquals(Status.OK, sections.get("members").getStatus());
+        assertEquals(Status.OK, sections.get("orders").getStatus());
+        assertEquals(Status.REJECTED, sections.get("items").getStatus());
+    }
+
+    private DashboardService dashboardService(Duration deadline, int parallelism, int queueCapacity) {
+        return new DashboardService(memberRepository, itemRepository, orderQueryRepository, new QueryResultCache(100),
+                mock(PlatformTransactionManager.class), deadline, parallelism, queueCapacity);
+    }
+
+    private static Answer<Object> slow(long millis) {
+        return invocation -> {
+            Thread.sleep(millis);
+            return new ArrayList<>();
+        };
+    }
+}
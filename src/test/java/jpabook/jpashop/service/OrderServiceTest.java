@@ -4,6 +4,7 @@ import jpabook.jpashop.domain.Address;
 import jpabook.jpashop.domain.Member;
 import jpabook.jpashop.domain.Order;
 import jpabook.jpashop.domain.OrderStatus;
+import jpabook.jpashop.domain.OrderSummary;
 import jpabook.jpashop.domain.item.Book;
 import jpabook.jpashop.domain.item.Item;
 import jpabook.jpashop.exception.NotEnoughStockException;
@@ -84,6 +85,52 @@ public class OrderServiceTest {
         assertEquals("주문이 취소된 상품은 그만큼 재고가 증가해야 한다.", 10, item.getStockQuantity());
     }
 
+    @Test
+    public void 주문요약_주문과_취소_반영() throws Exception {
+        //given
+        Member member = createMember();
+        Book item = createBook("시골 JPA", 10000, 10);
+
+        //when
+        Long orderId = orderService.order(member.getId(), item.getId(), 2);
+
+        //then
+        OrderSummary summary = em.find(OrderSummary.class, orderId);
+        assertEquals("주문하면 요약이 같이 생긴다.", member.getName(), summary.getMemberName());
+        assertEquals("주문 상태", OrderStatus.ORDER, summary.getStatus());
+        assertEquals("배송지", "서울", summary.getAddress().getCity());
+        assertEquals("주문상품 종류 수", 1, summary.getItemCount());
+        assertEquals("총 금액은 가격 * 수량이다.", 20000, summary.getTotalPrice());
+        assertEquals("대표상품", "시골 JPA", summary.getItemName());
+
+        //when
+        orderService.cancelOrder(orderId);
+
+        //then
+        assertEquals("취소하면 요약 상태도 CANCEL 이다.", OrderStatus.CANCEL, em.find(OrderSummary.class, orderId).getStatus());
+    }
+
+    /**
+     * 재고 차감은 native update 라서, 같은 트랜잭션에서 저장/변경한 상품이 먼저 flush 되어야 한다.
+     */
+    @Test
+    public void 같은_트랜잭션에서_저장하고_변경한_상품_주문() throws Exception {
+        //given - flush 전(insert 지연)
+        Member member = createMember();
+        Book item = createBook("시골 JPA", 10000, 10);
+        item.setStockQuantity(3);
+
+        //when
+        orderService.order(member.getId(), item.getId(), 3);
+
+        //then
+        Number stock = (Number) em.createNativeQuery("select stock_quantity from item where item_id = :itemId")
+                .setParameter("itemId", item.getId())
+                .getSingleResult();
+        assertEquals("변경한 재고(3)에서 차감되어야 한다.", 0, stock.intValue());
+        assertEquals(0, item.getStockQuantity());
+    }
+
     private Book createBook(String name, int price, int stockQuantity) {
         Book book = new Book();
         book.setName(name);
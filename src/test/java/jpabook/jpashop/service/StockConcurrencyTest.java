@@ -0,0 +1,177 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.domain.item.Item;
+import jpabook.jpashop.domain.item.ItemStockShard;
+import jpabook.jpashop.exception.NotEnoughStockException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * 같은 상품(hot item)에 동시에 주문이 몰릴 때 재고 정합성 확인
+ * 스레드마다 트랜잭션이 커밋되어야 하므로 @Transactional 을 붙이지 않는다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class StockConcurrencyTest {
+
+    private static final int STOCK = 100;
+    private static final int THREADS = 16;
+    private static final int ORDERS_PER_THREAD = 20;
+
+    @Autowired OrderService orderService;
+    @Autowired ItemService itemService;
+    @Autowired MemberService memberService;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    @Test
+    public void 동시주문_초과판매_없음() throws Exception {
+        //given
+        Long memberId = createMember();
+        Long itemId = createBook(STOCK);
+
+        //when
+        OrderResult result = orderConcurrently(memberId, itemId, 1);
+
+        //then
+        result.print("hot item");
+        assertTrue("예상하지 못한 예외 : " + result.errors, result.errors.isEmpty());
+        assertEquals("재고만큼만 주문이 성공해야 한다.", STOCK, result.success.get());
+        assertEquals("나머지는 재고 부족이어야 한다.", THREADS * ORDERS_PER_THREAD - STOCK, result.soldOut.get());
+        assertEquals("재고는 0이어야 한다.(음수 X, 갱신 유실 X)", 0, itemService.findOne(itemId).getStockQuantity());
+    }
+
+    /**
+     * 샤딩된 상품 - 스레드별 샤드 조건부 update 경로
+     */
+    @Test
+    public void 샤딩된_상품_동시주문_초과판매_없음() throws Exception {
+        //given
+        Long memberId = createMember();
+        Long itemId = createBook(STOCK);
+        itemService.shardStock(itemId, 4);
+
+        //when
+        OrderResult result = orderConcurrently(memberId, itemId, 1);
+
+        //then
+        result.print("sharded item");
+        assertTrue("예상하지 못한 예외 : " + result.errors, result.errors.isEmpty());
+        assertEquals("재고만큼만 주문이 성공해야 한다.", STOCK, result.success.get());
+        assertEquals("나머지는 재고 부족이어야 한다.", THREADS * ORDERS_PER_THREAD - STOCK, result.soldOut.get());
+        assertShardStock(itemId, 0);
+    }
+
+    /**
+     * 샤딩된 상품 - 한 샤드로 부족할 때 샤드 전체에 락을 잡고 나눠서 빼는 경로
+     * 100개를 3개 샤드(34, 33, 33)로 나누고 2개씩 주문하면, 한 샤드 안에서는 홀짝이 유지되므로
+     * 홀수 샤드 2개에 1개씩 남는다. -> 전부 팔리려면 샤드 전체 락 경로를 거쳐야 한다.
+     */
+    @Test
+    public void 샤딩된_상품_샤드에_나뉘어_남은_재고_동시주문() throws Exception {
+        //given
+        Long memberId = createMember();
+        Long itemId = createBook(STOCK);
+        itemService.shardStock(itemId, 3);
+
+        //when
+        OrderResult result = orderConcurrently(memberId, itemId, 2);
+
+        //then
+        result.print("sharded item(2개씩)");
+        assertTrue("예상하지 못한 예외 : " + result.errors, result.errors.isEmpty());
+        assertEquals("재고만큼만 주문이 성공해야 한다.", STOCK / 2, result.success.get());
+        assertEquals("나머지는 재고 부족이어야 한다.", THREADS * ORDERS_PER_THREAD - STOCK / 2, result.soldOut.get());
+        assertShardStock(itemId, 0);
+    }
+
+    /**
+     * 샤드 재고는 지연 로딩이므로 트랜잭션 안에서 확인한다.
+     */
+    private void assertShardStock(Long itemId, int expected) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Item item = itemService.findOne(itemId);
+            assertTrue(item.isStockSharded());
+            for (ItemStockShard shard : item.getStockShards()) {
+                assertTrue("샤드 재고는 음수가 될 수 없다. : " + shard.getQuantity(), shard.getQuantity() >= 0);
+            }
+            assertEquals("재고(샤드 합)는 " + expected + "이어야 한다.(음수 X, 갱신 유실 X)", expected, item.getStockQuantity());
+        });
+    }
+
+    private OrderResult orderConcurrently(Long memberId, Long itemId, int count) throws Exception {
+        OrderResult result = new OrderResult();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < ORDERS_PER_THREAD; i++) {
+                    try {
+                        orderService.order(memberId, itemId, count);
+                        result.success.incrementAndGet();
+                    } catch (NotEnoughStockException e) {
+                        result.soldOut.incrementAndGet();
+                    } catch (Throwable e) {
+                        result.errors.add(e);
+                    }
+                }
+                return null;
+            }));
+        }
+
+        long startNanos = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        result.elapsedNanos = System.nanoTime() - startNanos;
+        executor.shutdown();
+        return result;
+    }
+
+    private static class OrderResult {
+        final AtomicInteger success = new AtomicInteger();
+        final AtomicInteger soldOut = new AtomicInteger();
+        final List<Throwable> errors = new CopyOnWriteArrayList<>();
+        long elapsedNanos;
+
+        void print(String label) {
+            System.out.printf("%s 주문 %d건 / %.1f ms (%.0f orders/sec)%n",
+                    label, THREADS * ORDERS_PER_THREAD, elapsedNanos / 1_000_000.0,
+                    THREADS * ORDERS_PER_THREAD / (elapsedNanos / 1_000_000_000.0));
+        }
+    }
+
+    private Long createBook(int stockQuantity) {
+        Book book = new Book();
+        book.setName("동시성 JPA");
+        book.setPrice(10000);
+        book.setStockQuantity(stockQuantity);
+        itemService.saveItem(book);
+        return book.getId();
+    }
+
+    private Long createMember() {
+        Member member = new Member();
+        member.setName("동시주문회원" + System.nanoTime());
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        return memberService.join(member);
+    }
+}
@@ -0,0 +1,151 @@
+package jpabook.jpashop.service;
+
+import jpabook.jpashop.domain.Address;
+import jpabook.jpashop.domain.Member;
+import jpabook.jpashop.domain.item.Book;
+import jpabook.jpashop.exception.NotEnoughStockException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static org.junit.Assert.*;
+
+/**
+ * flush 는 별도 트랜잭션으로 item 테이블을 갱신하므로 @Transactional 을 붙이지 않는다.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "jpashop.reservation.hold-ttl=1s",
+        "jpashop.reservation.flush-interval=1h" //테스트에서 직접 flush
+})
+public class StockReservationServiceTest {
+
+    @Autowired StockReservationService stockReservationService;
+    @Autowired OrderService orderService;
+    @Autowired ItemService itemService;
+    @Autowired MemberService memberService;
+
+    @Test(expected = NotEnoughStockException.class)
+    public void 예약_재고초과() throws Exception {
+        //given
+        Long itemId = createBook(10);
+        stockReservationService.reserve(itemId, 7);
+
+        //when
+        stockReservationService.reserve(itemId, 4);
+
+        //then
+        fail("주문가능 수량보다 많이 예약하면 예외가 발생해야 한다.");
+    }
+
+    @Test
+    public void 예약_해제() throws Exception {
+        //given
+        Long itemId = createBook(10);
+        StockHold hold = stockReservationService.reserve(itemId, 3);
+
+        //when
+        boolean released = stockReservationService.release(hold.getId());
+
+        //then
+        assertTrue(released);
+        assertEquals("해제하면 주문가능 수량이 돌아와야 한다.", Long.valueOf(10), stockReservationService.available(itemId));
+        assertFalse("두 번 해제할 수 없다.", stockReservationService.release(hold.getId()));
+    }
+
+    @Test
+    public void 예약_만료() throws Exception {
+        //given
+        Long itemId = createBook(10);
+        StockHold hold = stockReservationService.reserve(itemId, 3);
+
+        //when
+        Thread.sleep(1100);
+        stockReservationService.expireHolds();
+
+        //then
+        assertEquals("만료되면 주문가능 수량이 돌아와야 한다.", Long.valueOf(10), stockReservationService.available(itemId));
+        assertFalse(stockReservationService.release(hold.getId()));
+    }
+
+    @Test
+    public void 예약_주문_DB반영() throws Exception {
+        //given
+        Long memberId = createMember();
+        Long itemId = createBook(10);
+        StockHold hold = stockReservationService.reserve(itemId, 3);
+
+        //when
+        orderService.orderReserved(memberId, hold.getId());
+
+        //then
+        assertEquals("flush 전에는 DB 재고가 그대로다.", 10, itemService.findOne(itemId).getStockQuantity());
+        stockReservationService.flush();
+        assertEquals("flush 하면 확정된 예약만큼 DB 재고가 줄어야 한다.", 7, itemService.findOne(itemId).getStockQuantity());
+        assertEquals(Long.valueOf(7), stockReservationService.available(itemId));
+    }
+
+    @Test
+    public void 다른경로_재고변경_반영() throws Exception {
+        //given
+        Long memberId = createMember();
+        Long itemId = createBook(10);
+        stockReservationService.reserve(itemId, 3);
+
+        //when
+        orderService.order(memberId, itemId, 2); //예약을 거치지 않는 주문
+        stockReservationService.flush();
+
+        //then
+        assertEquals("예약 3 + 일반 주문 2", Long.valueOf(5), stockReservationService.available(itemId));
+    }
+
+    @Test(expected = NotEnoughStockException.class)
+    public void 일반주문은_예약된_수량을_못씀() throws Exception {
+        //given
+        Long memberId = createMember();
+        Long itemId = createBook(10);
+        stockReservationService.reserve(itemId, 8);
+
+        //when
+        orderService.order(memberId, itemId, 3); //DB 재고는 10 이지만 주문가능 수량은 2
+
+        //then
+        fail("예약된 수량까지 주문하면 예외가 발생해야 한다.");
+    }
+
+    @Test
+    public void 예약주문_취소() throws Exception {
+        //given
+        Long memberId = createMember();
+        Long itemId = createBook(10);
+        StockHold hold = stockReservationService.reserve(itemId, 3);
+        Long orderId = orderService.orderReserved(memberId, hold.getId());
+
+        //when
+        orderService.cancelOrder(orderId);
+
+        //then
+        stockReservationService.flush();
+        assertEquals("확정 차감(-3) + 취소(+3)", 10, itemService.findOne(itemId).getStockQuantity());
+        assertEquals(Long.valueOf(10), stockReservationService.available(itemId));
+    }
+
+    private Long createBook(int stockQuantity) {
+        Book book = new Book();
+        book.setName("예약 JPA");
+        book.setPrice(10000);
+        book.setStockQuantity(stockQuantity);
+        itemService.saveItem(book);
+        return book.getId();
+    }
+
+    private Long createMember() {
+        Member member = new Member();
+        member.setName("예약회원" + System.nanoTime());
+        member.setAddress(new Address("서울", "강가", "123-123"));
+        return memberService.join(member);
+    }
+}